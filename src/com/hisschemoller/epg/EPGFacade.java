@@ -22,6 +22,7 @@ package com.hisschemoller.epg;
 
 import org.puremvc.java.multicore.patterns.facade.Facade;
 
+import com.hisschemoller.epg.model.data.HeadlessSettingsVO;
 import com.hisschemoller.epg.notification.SeqNotifications;
 
 public class EPGFacade extends Facade
@@ -55,4 +56,13 @@ public class EPGFacade extends Facade
 	{
 		sendNotification ( SeqNotifications.STARTUP );
 	}
+
+	/**
+	 * Start without user interface, to play a project on a machine without
+	 * a display.
+	 */
+	public void startupHeadless ( HeadlessSettingsVO settings )
+	{
+		sendNotification ( SeqNotifications.STARTUP_HEADLESS, settings );
+	}
 }
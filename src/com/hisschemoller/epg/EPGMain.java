@@ -22,11 +22,26 @@ package com.hisschemoller.epg;
 
 import javax.swing.SwingUtilities;
 
+import com.hisschemoller.epg.model.data.EPGEnums;
+import com.hisschemoller.epg.model.data.HeadlessSettingsVO;
+import com.hisschemoller.epg.notification.SeqNotifications;
+
 /**
  * Program argument: -Dcom.apple.macos.useScreenMenuBar = true
+ * 
+ * Run without user interface:
+ * --headless [project.xml] [--midi-in name] [--midi-out name] [--osc-port port] [--osc-routes routes]
+ * Settings that aren't given are read from the preferences.
+ * 
+ * Render a project to a MIDI file and exit:
+ * --headless [project.xml] --render file.mid [--bars bars]
+ * 
+ * Convert a project between XML and the binary format and exit:
+ * --headless project.xml --save project.epgp
  */
 public class EPGMain
 {
+	private static final String HEADLESS = "--headless";
 	private EPGFacade _facade = EPGFacade.getInstance ( );
 
 	public EPGMain ( )
@@ -35,8 +50,34 @@ public class EPGMain
 		_facade.startup ( );
 	}
 
+	public EPGMain ( HeadlessSettingsVO settings )
+	{
+		/** Stop playback on exit, so no notes are left hanging. */
+		Runtime.getRuntime ( ).addShutdownHook ( new Thread ( "EPGShutdown" )
+		{
+			public void run ( )
+			{
+				_facade.sendNotification ( SeqNotifications.CHANGE_PLAYBACK, EPGEnums.Playback.STOP );
+			}
+		} );
+
+		/** Start PureMVC without the Swing user interface. */
+		_facade.startupHeadless ( settings );
+	}
+
 	public static void main ( String [ ] args )
 	{
+		if ( args.length > 0 && args[ 0 ].equals ( HEADLESS ) )
+		{
+			System.setProperty ( "java.awt.headless", "true" );
+			HeadlessSettingsVO settings = parseArguments ( args );
+			if ( settings != null )
+			{
+				new EPGMain ( settings );
+			}
+			return;
+		}
+
 		SwingUtilities.invokeLater ( new Runnable ( )
 		{
 			public void run ( )
@@ -45,4 +86,61 @@ public class EPGMain
 			}
 		} );
 	}
+
+	/**
+	 * @return Settings for a headless run, null if the arguments are invalid.
+	 */
+	private static HeadlessSettingsVO parseArguments ( String [ ] args )
+	{
+		HeadlessSettingsVO settings = new HeadlessSettingsVO ( );
+		try
+		{
+			for ( int i = 1; i < args.length; i++ )
+			{
+				if ( args[ i ].equals ( "--midi-in" ) )
+				{
+					settings.midiInDevice = args[ ++i ];
+				}
+				else if ( args[ i ].equals ( "--midi-out" ) )
+				{
+					settings.midiOutDevice = args[ ++i ];
+				}
+				else if ( args[ i ].equals ( "--osc-port" ) )
+				{
+					settings.oscOutPort = Integer.parseInt ( args[ ++i ] );
+				}
+				else if ( args[ i ].equals ( "--osc-routes" ) )
+				{
+					settings.oscRoutes = args[ ++i ];
+				}
+				else if ( args[ i ].equals ( "--render" ) )
+				{
+					settings.renderPath = args[ ++i ];
+				}
+				else if ( args[ i ].equals ( "--bars" ) )
+				{
+					settings.renderBars = Integer.parseInt ( args[ ++i ] );
+				}
+				else if ( args[ i ].equals ( "--save" ) )
+				{
+					settings.savePath = args[ ++i ];
+				}
+				else if ( !args[ i ].startsWith ( "--" ) && settings.projectPath == null )
+				{
+					settings.projectPath = args[ i ];
+				}
+				else
+				{
+					throw new IllegalArgumentException ( args[ i ] );
+				}
+			}
+		}
+		catch ( RuntimeException exception )
+		{
+			System.out.println ( "Usage: " + HEADLESS + " [project.xml] [--midi-in name] [--midi-out name] [--osc-port port] [--osc-routes routes] [--render file.mid] [--bars bars] [--save file]" );
+			return null;
+		}
+
+		return settings;
+	}
 }
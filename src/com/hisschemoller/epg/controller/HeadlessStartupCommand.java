@@ -0,0 +1,130 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.controller;
+
+import java.io.File;
+
+import org.puremvc.java.multicore.interfaces.ICommand;
+import org.puremvc.java.multicore.interfaces.INotification;
+import org.puremvc.java.multicore.patterns.command.SimpleCommand;
+
+import com.hisschemoller.epg.model.FileProxy;
+import com.hisschemoller.epg.model.MidiProxy;
+import com.hisschemoller.epg.model.OscProxy;
+import com.hisschemoller.epg.model.PreferencesProxy;
+import com.hisschemoller.epg.model.SequencerProxy;
+import com.hisschemoller.epg.model.data.EPGEnums;
+import com.hisschemoller.epg.model.data.EPGEnums.ClockSourceType;
+import com.hisschemoller.epg.model.data.HeadlessSettingsVO;
+import com.hisschemoller.epg.notification.SeqNotifications;
+import com.hisschemoller.epg.util.EPGPreferences;
+import com.hisschemoller.epg.util.EuclideanTable;
+
+public class HeadlessStartupCommand extends SimpleCommand implements ICommand
+{
+	/**
+	 * Start the sequencer and its MIDI and OSC outputs without any window,
+	 * then open a project and play it. No view components are created, so
+	 * AWT is never initialised. To render the project to a MIDI file no
+	 * outputs or clock are opened, and the application ends when it's done.
+	 * The same goes for saving the project in another format.
+	 * Command line options only apply to this run, so the stored
+	 * preferences of the desktop application are left as they are.
+	 */
+	@Override public final void execute ( INotification notification )
+	{
+		HeadlessSettingsVO settings = ( HeadlessSettingsVO ) notification.getBody ( );
+		EPGPreferences.setSaving ( false );
+
+		EuclideanTable.preload ( );
+		getFacade ( ).registerProxy ( new SequencerProxy ( EPGPreferences.getInt ( EPGPreferences.PULSES_PER_QUARTER_NOTE, SequencerProxy.DEFAULT_PULSES_PER_QUARTER_NOTE ) ) );
+		getFacade ( ).registerProxy ( new MidiProxy ( ) );
+		getFacade ( ).registerProxy ( new OscProxy ( ) );
+		getFacade ( ).registerProxy ( new FileProxy ( ) );
+		getFacade ( ).registerProxy ( new PreferencesProxy ( ) );
+
+		if ( settings.renderPath == null && settings.savePath == null )
+		{
+			openOutputs ( settings );
+		}
+
+		String projectPath = settings.projectPath != null ? settings.projectPath : EPGPreferences.get ( EPGPreferences.LAST_OPENED_PROJECT, null );
+		if ( projectPath == null )
+		{
+			System.out.println ( "HeadlessStartupCommand.execute() No project to play." );
+			return;
+		}
+
+		sendNotification ( SeqNotifications.OPEN_PROJECT, new File ( projectPath ).getAbsoluteFile ( ) );
+
+		if ( settings.savePath != null )
+		{
+			SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
+			if ( sequencerProxy.getPatterns ( ).size ( ) == 0 )
+			{
+				System.out.println ( "HeadlessStartupCommand.execute() Project not opened, nothing saved." );
+				return;
+			}
+
+			FileProxy fileProxy = ( FileProxy ) getFacade ( ).retrieveProxy ( FileProxy.NAME );
+			fileProxy.setFile ( new File ( settings.savePath ).getAbsoluteFile ( ) );
+			sendNotification ( SeqNotifications.SAVE_PROJECT );
+			return;
+		}
+
+		if ( settings.renderPath != null )
+		{
+			sendNotification ( SeqNotifications.EXPORT_MIDI_FILE, new File ( settings.renderPath ), settings.renderBars != null ? settings.renderBars.toString ( ) : null );
+			return;
+		}
+
+		/** A project synced to MIDI clock starts with the clock, otherwise start playing now. */
+		SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
+		if ( sequencerProxy.getClockSourceType ( ) == ClockSourceType.INTERNAL && sequencerProxy.getPatterns ( ).size ( ) > 0 )
+		{
+			sendNotification ( SeqNotifications.CHANGE_PLAYBACK, EPGEnums.Playback.START );
+		}
+	}
+
+	/**
+	 * Open the MIDI and OSC outputs and the clock, from the command line
+	 * settings or else the preferences.
+	 */
+	private void openOutputs ( HeadlessSettingsVO settings )
+	{
+		String midiInDevice = settings.midiInDevice != null ? settings.midiInDevice : EPGPreferences.get ( EPGPreferences.MIDI_IN_DEVICE, null );
+		String midiOutDevice = settings.midiOutDevice != null ? settings.midiOutDevice : EPGPreferences.get ( EPGPreferences.MIDI_OUT_DEVICE, null );
+		int oscOutPort = settings.oscOutPort != null ? settings.oscOutPort : EPGPreferences.getInt ( EPGPreferences.OSC_OUT_PORT, 9000 );
+		String oscRoutes = settings.oscRoutes != null ? settings.oscRoutes : EPGPreferences.get ( EPGPreferences.OSC_ROUTES, "" );
+
+		sendNotification ( SeqNotifications.UPDATE_MIDI_DEVICES );
+		sendNotification ( SeqNotifications.OPEN_MIDI_IN_DEVICE, midiInDevice );
+		sendNotification ( SeqNotifications.OPEN_MIDI_OUT_DEVICE, midiOutDevice );
+		sendNotification ( SeqNotifications.ENABLE_MIDI_IN_DEVICE, EPGPreferences.getBoolean ( EPGPreferences.MIDI_IN_ENABLED, true ) );
+		sendNotification ( SeqNotifications.ENABLE_MIDI_OUT_DEVICE, EPGPreferences.getBoolean ( EPGPreferences.MIDI_OUT_ENABLED, true ) );
+		sendNotification ( SeqNotifications.ENABLE_OSC_OUT_DEVICE, EPGPreferences.getBoolean ( EPGPreferences.OSC_OUT_ENABLED, true ) );
+		sendNotification ( SeqNotifications.UPDATE_OSC_OUT_PORT, oscOutPort );
+		sendNotification ( SeqNotifications.UPDATE_OSC_ROUTES, oscRoutes );
+		sendNotification ( SeqNotifications.UPDATE_LOOKAHEAD, EPGPreferences.getInt ( EPGPreferences.LOOKAHEAD, 0 ) );
+		sendNotification ( SeqNotifications.UPDATE_SYNC_TO_MIDI_IN_ENABLED, EPGPreferences.getBoolean ( EPGPreferences.SYNC_TO_MIDI_IN_CLOCK, false ) );
+		sendNotification ( SeqNotifications.UPDATE_TRIGGER_BY_NOTE, EPGPreferences.getBoolean ( EPGPreferences.TRIGGERED_BY_MIDI_NOTE, false ) );
+	}
+}
@@ -32,6 +32,7 @@ import com.hisschemoller.epg.model.SequencerProxy;
 import com.hisschemoller.epg.model.WindowProxy;
 import com.hisschemoller.epg.notification.SeqNotifications;
 import com.hisschemoller.epg.util.EPGPreferences;
+import com.hisschemoller.epg.util.EuclideanTable;
 import com.hisschemoller.epg.view.ControlsMediator;
 import com.hisschemoller.epg.view.MainWindowMediator;
 import com.hisschemoller.epg.view.MenuBarMediator;
@@ -43,7 +44,8 @@ public class StartupCommand extends SimpleCommand implements ICommand
 	@Override public final void execute ( INotification notification )
 	{
 		getFacade ( ).registerProxy ( new WindowProxy ( ) );
-		getFacade ( ).registerProxy ( new SequencerProxy ( ) );
+		EuclideanTable.preload ( );
+		getFacade ( ).registerProxy ( new SequencerProxy ( EPGPreferences.getInt ( EPGPreferences.PULSES_PER_QUARTER_NOTE, SequencerProxy.DEFAULT_PULSES_PER_QUARTER_NOTE ) ) );
 		getFacade ( ).registerProxy ( new MidiProxy ( ) );
 		getFacade ( ).registerProxy ( new OscProxy ( ) );
 		getFacade ( ).registerProxy ( new FileProxy ( ) );
@@ -66,10 +68,13 @@ public class StartupCommand extends SimpleCommand implements ICommand
 		sendNotification ( SeqNotifications.ENABLE_MIDI_OUT_DEVICE, EPGPreferences.getBoolean ( EPGPreferences.MIDI_OUT_ENABLED, true ) );
 		sendNotification ( SeqNotifications.ENABLE_OSC_OUT_DEVICE, EPGPreferences.getBoolean ( EPGPreferences.OSC_OUT_ENABLED, true ) );
 		sendNotification ( SeqNotifications.UPDATE_OSC_OUT_PORT, EPGPreferences.getInt ( EPGPreferences.OSC_OUT_PORT, 9000 ) );
+		sendNotification ( SeqNotifications.UPDATE_OSC_ROUTES, EPGPreferences.get ( EPGPreferences.OSC_ROUTES, "" ) );
+		sendNotification ( SeqNotifications.UPDATE_LOOKAHEAD, EPGPreferences.getInt ( EPGPreferences.LOOKAHEAD, 0 ) );
 		sendNotification ( SeqNotifications.UPDATE_SYNC_TO_MIDI_IN_ENABLED, EPGPreferences.getBoolean ( EPGPreferences.SYNC_TO_MIDI_IN_CLOCK, false ) );
 		sendNotification ( SeqNotifications.UPDATE_TRIGGER_BY_NOTE, EPGPreferences.getBoolean ( EPGPreferences.TRIGGERED_BY_MIDI_NOTE, false ) );
 		sendNotification ( SeqNotifications.ENABLE_DISPLAY_MIDI_NOTE_NAMES, EPGPreferences.getBoolean ( EPGPreferences.DISPLAY_MIDI_NOTE_NAMES, false ) );
 		sendNotification ( SeqNotifications.ENABLE_RELOAD_LAST_PROJECT, EPGPreferences.getBoolean ( EPGPreferences.RELOAD_LAST_OPENED_PROJECT, false ) );
+		sendNotification ( SeqNotifications.ENABLE_SINGLE_SURFACE_CANVAS, EPGPreferences.getBoolean ( EPGPreferences.SINGLE_SURFACE_CANVAS, false ) );
 		sendNotification ( SeqNotifications.STARTUP_PROJECT, EPGPreferences.get ( EPGPreferences.LAST_OPENED_PROJECT, null ) );
 	}
 }
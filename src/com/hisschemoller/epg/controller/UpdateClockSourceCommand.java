@@ -55,7 +55,7 @@ public class UpdateClockSourceCommand extends SimpleCommand
 				break;
 
 			case MIDI_CLOCK_IN:
-				clockSource = new MidiInClockSource ( sequencerProxy, midiProxy.getClockTransmitter ( ) );
+				clockSource = new MidiInClockSource ( sequencerProxy, midiProxy.getClockTransmitter ( ), sequencerProxy.getPulsesPerQuarterNote ( ) );
 				break;
 			}
 
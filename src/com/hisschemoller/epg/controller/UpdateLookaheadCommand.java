@@ -20,36 +20,27 @@
 
 package com.hisschemoller.epg.controller;
 
-import java.util.Vector;
-
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
 import com.hisschemoller.epg.model.SequencerProxy;
-import com.hisschemoller.epg.model.data.PatternVO;
-import com.hisschemoller.epg.notification.note.PatternPositionNote;
+import com.hisschemoller.epg.util.EPGPreferences;
 
-public class UpdatePositionNotesCommand extends SimpleCommand
+public class UpdateLookaheadCommand extends SimpleCommand
 {
 	/**
-	 * Recreate array with the correct length. When a pattern is created or
-	 * deleted. PatternPositionNote objects contain the position within the
-	 * rotation of a pattern.
+	 * Set how many milliseconds ahead the sequencer renders notes. MIDI
+	 * output is timestamped so the driver plays it on time.
 	 */
 	@Override public final void execute ( final INotification notification )
 	{
+		int lookahead = Math.max ( 0, ( Integer ) notification.getBody ( ) );
 		SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
-		Vector < PatternVO > patterns = sequencerProxy.getPatterns ( );
 
-		/** Create position notes array of new length. */
-		int n = patterns.size ( );
-		PatternPositionNote [ ] positionNotes = new PatternPositionNote[ n ];
-		for ( int i = 0; i < n; i++ )
+		if ( sequencerProxy.getLookahead ( ) != lookahead )
 		{
-			positionNotes[ i ] = new PatternPositionNote ( );
-			positionNotes[ i ].patternID = patterns.get ( i ).id;
+			sequencerProxy.setLookahead ( lookahead );
+			EPGPreferences.putInt ( EPGPreferences.LOOKAHEAD, lookahead );
 		}
-
-		sequencerProxy.setPositionNotes ( positionNotes );
 	}
 }
@@ -30,8 +30,10 @@ import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
 import com.hisschemoller.epg.model.MidiProxy;
+import com.hisschemoller.epg.model.SequencerProxy;
 import com.hisschemoller.epg.notification.SeqNotifications;
 import com.hisschemoller.epg.util.EPGPreferences;
+import com.hisschemoller.epg.util.MidiOutPort;
 
 public class OpenMidiDeviceCommand extends SimpleCommand
 {
@@ -87,16 +89,19 @@ public class OpenMidiDeviceCommand extends SimpleCommand
 				midiProxy.setMidiOutDevice ( midiDevice );
 				midiProxy.setMidiOutDeviceInfo ( midiDeviceInfo );
 
+				/** Open the new receiver and bind it to the sequencer's MIDI output before the previous one closes. */
+				Receiver previousReceiver = midiProxy.getReceiver ( );
+				Receiver receiver = midiDevice.getReceiver ( );
+				midiProxy.setReceiver ( receiver );
+				SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
+				sequencerProxy.setMidiOutPort ( new MidiOutPort ( midiDevice, receiver ) );
+
 				/** Close previous receiver if it is open. */
-				Receiver receiver = midiProxy.getReceiver ( );
-				if ( receiver != null )
+				if ( previousReceiver != null )
 				{
-					receiver.close ( );
+					previousReceiver.close ( );
 				}
 
-				/** Open the new receiver. */
-				midiProxy.setReceiver ( midiDevice.getReceiver ( ) );
-
 				/** Store device name in preferences. */
 				EPGPreferences.put ( EPGPreferences.MIDI_OUT_DEVICE, midiDevice.getDeviceInfo ( ).getName ( ) );
 
@@ -24,6 +24,7 @@ import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
 import com.hisschemoller.epg.model.OscProxy;
+import com.hisschemoller.epg.model.SequencerProxy;
 import com.hisschemoller.epg.notification.SeqNotifications;
 import com.hisschemoller.epg.util.EPGPreferences;
 
@@ -36,7 +37,9 @@ public class UpdateOscPortCommand extends SimpleCommand
 
 		if ( oscProxy.getPort ( ) != port )
 		{
+			SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
 			oscProxy.setNetAddress ( port );
+			sequencerProxy.setOscOutPort ( oscProxy.getOscOutPort ( ) );
 			sendNotification ( SeqNotifications.OSC_OUT_PORT_UPDATED, oscProxy.getPort ( ) );
 			EPGPreferences.putInt ( EPGPreferences.OSC_OUT_PORT, port );
 		}
@@ -24,10 +24,6 @@ import java.awt.Point;
 import java.util.UUID;
 import java.util.Vector;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiEvent;
-import javax.sound.midi.ShortMessage;
-
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
@@ -35,6 +31,7 @@ import com.hisschemoller.epg.model.SequencerProxy;
 import com.hisschemoller.epg.model.data.PatternVO;
 import com.hisschemoller.epg.model.data.EPGEnums.Quantization;
 import com.hisschemoller.epg.notification.SeqNotifications;
+import com.hisschemoller.epg.util.MidiUtils;
 
 public class CreatePatternCommand extends SimpleCommand
 {
@@ -80,34 +77,18 @@ public class CreatePatternCommand extends SimpleCommand
 		patternVO.triggerMidiInEnabled = false;
 		patternVO.triggerMidiInChannel = 9;
 		patternVO.triggerMidiInPitch = 60;
-		patternVO.noteLength = sequencerProxy.getPulsesPerQuarterNote ( ) / 4;
+		patternVO.noteLength = MidiUtils.MIDI_CLOCK_PPQN / 4;
 		patternVO.oscOutAddress = "/eu/pattern" + patterns.size();
 		patternVO.mutedBySolo = mutedBySolo;
 		patternVO.viewX = point.x;
 		patternVO.viewY = point.y;
 
-		/** Add four events to the pattern. */
-		for ( int i = 0; i < patternVO.fills; i++ )
-		{
-			try
-			{
-				ShortMessage message = new ShortMessage ( );
-				message.setMessage ( ShortMessage.NOTE_ON, patternVO.midiOutChannel, patternVO.midiOutPitch, patternVO.midiOutVelocity );
-				MidiEvent midiEvent = new MidiEvent ( message, i * 4 * patternVO.stepLength );
-
-				patternVO.events.add ( midiEvent );
-			}
-			catch ( InvalidMidiDataException exception )
-			{
-				System.out.println ( "CreatePatternCommand.execute() InvalidMidiDataException: " + exception.getMessage ( ) );
-			}
-		}
+		/** Build the settings the sequencer plays from, the hit table included. */
+		sequencerProxy.publishSnapshot ( patternVO );
 
 		/** Add pattern to list. */
 		patterns.add ( patternVO );
-
-		/** Create position notes array of new length. */
-		sendNotification ( SeqNotifications.UPDATE_POSITION_NOTES );
+		sequencerProxy.updatePlaylist ( );
 		
 		/** Set if the pattern should generate notes. */
 		sendNotification ( SeqNotifications.UPDATE_PATTERN_IS_PLAYING, patternVO );
@@ -49,6 +49,7 @@ public class DeletePatternCommand extends SimpleCommand
 			{
 				/** Delete the pattern. */
 				PatternVO removedPatternVO = patterns.remove ( n );
+				sequencerProxy.updatePlaylist ( );
 				sendNotification ( SeqNotifications.PATTERN_DELETED, removedPatternVO );
 
 				/** Select the next pattern. */
@@ -65,9 +66,6 @@ public class DeletePatternCommand extends SimpleCommand
 				/** Select pattern. */
 				sendNotification ( SeqNotifications.SELECT_PATTERN, patternToSelect );
 				
-				/** Create position notes array of new length. */
-				sendNotification ( SeqNotifications.UPDATE_POSITION_NOTES );
-				
 				return;
 			}
 		}
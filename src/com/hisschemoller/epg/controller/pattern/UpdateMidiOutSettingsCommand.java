@@ -20,10 +20,6 @@
 
 package com.hisschemoller.epg.controller.pattern;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiEvent;
-import javax.sound.midi.ShortMessage;
-
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
@@ -49,21 +45,8 @@ public class UpdateMidiOutSettingsCommand extends SimpleCommand
 		patternVO.midiOutVelocity = settingsVO.midiOutVelocity;
 		patternVO.noteLength = settingsVO.noteLength;
 
-		/** Update the pattern events. */
-		for ( int i = 0; i < patternVO.fills; i++ )
-		{
-			MidiEvent midiEvent = patternVO.events.get ( i );
-			ShortMessage message = ( ShortMessage ) midiEvent.getMessage ( );
-
-			try
-			{
-				message.setMessage ( ShortMessage.NOTE_ON, settingsVO.midiOutChannel, settingsVO.midiOutPitch, settingsVO.midiOutVelocity );
-			}
-			catch ( InvalidMidiDataException exception )
-			{
-				System.out.println ( "UpdateMidiOutSettingsCommand.execute() InvalidMidiDataException: " + exception.getMessage ( ) );
-			}
-		}
+		/** Publish the new settings to the sequencer. */
+		sequencerProxy.publishSnapshot ( patternVO );
 
 		sendNotification ( SeqNotifications.MIDI_OUT_SETTINGS_UPDATED, patternVO );
 	}
@@ -43,6 +43,7 @@ public final class UpdateOscSettingsCommand extends SimpleCommand
 		if ( !patternVO.oscOutAddress.equals ( settingsVO.oscOutAddress ) )
 		{
 			patternVO.oscOutAddress = settingsVO.oscOutAddress;
+			sequencerProxy.publishSnapshot ( patternVO );
 			sendNotification ( SeqNotifications.OSC_SETTINGS_UPDATED, patternVO );
 		}
 	}
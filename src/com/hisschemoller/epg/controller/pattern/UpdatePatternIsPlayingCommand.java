@@ -56,10 +56,17 @@ public class UpdatePatternIsPlayingCommand extends SimpleCommand
 		MidiProxy midiProxy = ( MidiProxy ) getFacade ( ).retrieveProxy ( MidiProxy.NAME );
 		SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
 
+		patternVO.isPlaying = getIsPlaying ( patternVO, midiProxy, sequencerProxy );
+
+		/** Publish the change to the sequencer. */
+		sequencerProxy.publishSnapshot ( patternVO );
+	}
+
+	private boolean getIsPlaying ( PatternVO patternVO, MidiProxy midiProxy, SequencerProxy sequencerProxy )
+	{
 		if ( ( patternVO.mute && !patternVO.solo ) || patternVO.mutedBySolo )
 		{
-			patternVO.isPlaying = false;
-			return;
+			return false;
 		}
 
 		if ( midiProxy.getMidiInEnabled ( ) )
@@ -70,26 +77,26 @@ public class UpdatePatternIsPlayingCommand extends SimpleCommand
 				{
 					if(patternVO.isTriggered)
 					{
-						patternVO.isPlaying = true;
+						return true;
 					}
 					else
 					{
-						patternVO.isPlaying = false;
+						return false;
 					}
 				}
 				else
 				{
-					patternVO.isPlaying = true;
+					return true;
 				}
 			}
 			else
 			{
-				patternVO.isPlaying = true;
+				return true;
 			}
 		}
 		else
 		{
-			patternVO.isPlaying = true;
+			return true;
 		}
 	}
 }
@@ -20,8 +20,6 @@
 
 package com.hisschemoller.epg.controller.pattern;
 
-import java.util.Vector;
-
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
@@ -36,22 +34,9 @@ public class UpdatePatternLocationCommand extends SimpleCommand
 		PatternVO tempPatternVO = ( PatternVO ) notification.getBody ( );
 
 		SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
-		Vector<PatternVO> patterns = sequencerProxy.getPatterns ( );
-
-		PatternVO patternVO = null;
+		PatternVO patternVO = sequencerProxy.getPatternByID ( tempPatternVO.id );
 		Boolean positionChanged = false;
 
-		/** Search for the pattern in the selected sequence. */
-		int n = patterns.size ( );
-		while ( --n > -1 )
-		{
-			if ( tempPatternVO.id == patterns.get ( n ).id )
-			{
-				patternVO = patterns.get ( n );
-				break;
-			}
-		}
-
 		/** If the pattern wasn't found quit. */
 		if ( patternVO == null )
 		{
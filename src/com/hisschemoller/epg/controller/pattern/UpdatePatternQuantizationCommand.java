@@ -20,12 +20,6 @@
 
 package com.hisschemoller.epg.controller.pattern;
 
-import java.util.ArrayList;
-
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiEvent;
-import javax.sound.midi.ShortMessage;
-
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
@@ -34,7 +28,6 @@ import com.hisschemoller.epg.model.data.PatternVO;
 import com.hisschemoller.epg.model.data.SettingsVO;
 import com.hisschemoller.epg.model.data.EPGEnums.Quantization;
 import com.hisschemoller.epg.notification.SeqNotifications;
-import com.hisschemoller.epg.util.BjorklundGenerator3;
 
 public class UpdatePatternQuantizationCommand extends SimpleCommand
 {
@@ -52,42 +45,12 @@ public class UpdatePatternQuantizationCommand extends SimpleCommand
 		{
 			Quantization quantization = Quantization.get ( settingsVO.quantization );
 
-			float oldLength = patternVO.patternLength;
-
 			patternVO.quantization = ( quantization != null ) ? quantization.getValue ( ) : Quantization.Q16.getValue ( );
 			patternVO.stepLength = ( sequencerProxy.getPulsesPerQuarterNote ( ) * 4 ) / patternVO.quantization;
 			patternVO.patternLength = patternVO.stepLength * patternVO.steps;
-			patternVO.position = ( int ) ( ( patternVO.position / oldLength ) * patternVO.patternLength );
-
-			/** Generate the Euclid / Bjorklund pattern. */
-			ArrayList < Boolean > pattern = BjorklundGenerator3.generate ( settingsVO.steps, settingsVO.fills );
-
-			/** Take first event in patternVO as 'blueprint'. */
-			MidiEvent sourceMidiEvent = patternVO.events.get ( 0 );
-
-			/** Clear all events. */
-			patternVO.events = new ArrayList < MidiEvent > ( );
 
-			/** Loop through the new euclid pattern */
-			try
-			{
-				int n = pattern.size ( );
-				for ( int i = 0; i < n; i++ )
-				{
-					if ( pattern.get ( i ) == true )
-					{
-						ShortMessage sourceMessage = ( ShortMessage ) sourceMidiEvent.getMessage ( );
-						ShortMessage message = new ShortMessage ( );
-						message.setMessage ( sourceMessage.getStatus ( ), sourceMessage.getChannel ( ), sourceMessage.getData1 ( ), sourceMessage.getData2 ( ) );
-						MidiEvent midiEvent = new MidiEvent ( message, i * patternVO.stepLength );
-						patternVO.events.add ( midiEvent );
-					}
-				}
-			}
-			catch ( InvalidMidiDataException exception )
-			{
-				exception.printStackTrace ( );
-			}
+			/** Publish the new settings. The sequencer rescales the position on its next pulse. */
+			sequencerProxy.publishSnapshot ( patternVO );
 
 			sendNotification ( SeqNotifications.PATTERN_QUANTIZATION_UPDATED, patternVO );
 		}
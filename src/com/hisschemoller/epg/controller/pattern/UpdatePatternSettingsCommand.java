@@ -20,12 +20,6 @@
 
 package com.hisschemoller.epg.controller.pattern;
 
-import java.util.ArrayList;
-
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiEvent;
-import javax.sound.midi.ShortMessage;
-
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
@@ -33,7 +27,7 @@ import com.hisschemoller.epg.model.SequencerProxy;
 import com.hisschemoller.epg.model.data.PatternVO;
 import com.hisschemoller.epg.model.data.SettingsVO;
 import com.hisschemoller.epg.notification.SeqNotifications;
-import com.hisschemoller.epg.util.BjorklundGenerator3;
+import com.hisschemoller.epg.util.EuclideanTable;
 
 public class UpdatePatternSettingsCommand extends SimpleCommand
 {
@@ -57,42 +51,13 @@ public class UpdatePatternSettingsCommand extends SimpleCommand
 			{
 				patternChanged = true;
 
-				/** Never more fills then there are steps */
+				/** Never more steps than the sliders allow, never more fills then there are steps */
+				settingsVO.steps = Math.min ( settingsVO.steps, EuclideanTable.MAXIMUM_STEPS );
 				settingsVO.fills = Math.min ( settingsVO.fills, settingsVO.steps );
 
 				/** Adjust length (measured in PPQN). */
 				patternVO.patternLength = settingsVO.steps * patternVO.stepLength;
 
-				/** Generate the Euclid / Bjorklund pattern. */
-				ArrayList<Boolean> pattern = BjorklundGenerator3.generate ( settingsVO.steps, settingsVO.fills );
-
-				/** Take first event in patternVO as 'blueprint'. */
-				MidiEvent sourceMidiEvent = patternVO.events.get ( 0 );
-
-				/** Clear all events. */
-				patternVO.events = new ArrayList<MidiEvent> ( );
-
-				/** Loop through the new euclid pattern */
-				try
-				{
-					int n = pattern.size ( );
-					for ( int i = 0; i < n; i++ )
-					{
-						if ( pattern.get ( i ) == true )
-						{
-							ShortMessage sourceMessage = ( ShortMessage ) sourceMidiEvent.getMessage ( );
-							ShortMessage message = new ShortMessage ( );
-							message.setMessage ( sourceMessage.getStatus ( ), sourceMessage.getChannel ( ), sourceMessage.getData1 ( ), sourceMessage.getData2 ( ) );
-							MidiEvent midiEvent = new MidiEvent ( message, i * patternVO.stepLength );
-							patternVO.events.add ( midiEvent );
-						}
-					}
-				}
-				catch ( InvalidMidiDataException exception )
-				{
-					System.out.println ( "UpdatePatternSettingsCommand.execute() InvalidMidiDataException: " + exception.getMessage ( ) );
-				}
-
 				/** Update pattern with values from the settings pattern. */
 				if ( settingsVO.steps != 0 )
 				{
@@ -117,6 +82,9 @@ public class UpdatePatternSettingsCommand extends SimpleCommand
 
 		if ( patternChanged )
 		{
+			/** Publish the new settings to the sequencer. The snapshot looks up the rotated Euclid / Bjorklund pattern. */
+			sequencerProxy.publishSnapshot ( patternVO );
+
 			sendNotification ( SeqNotifications.PATTERN_SETTINGS_UPDATED, patternVO );
 		}
 	}
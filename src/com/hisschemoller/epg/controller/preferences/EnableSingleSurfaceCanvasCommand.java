@@ -18,24 +18,31 @@
  * see <http://www.gnu.org/licenses/>.
  */
 
-package com.hisschemoller.epg.controller.midi;
-
-import javax.sound.midi.ShortMessage;
+package com.hisschemoller.epg.controller.preferences;
 
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.command.SimpleCommand;
 
-import com.hisschemoller.epg.model.MidiProxy;
+import com.hisschemoller.epg.model.PreferencesProxy;
+import com.hisschemoller.epg.notification.SeqNotifications;
+import com.hisschemoller.epg.util.EPGPreferences;
 
-public class SendMidiMessageCommand extends SimpleCommand
+public class EnableSingleSurfaceCanvasCommand extends SimpleCommand
 {
 	/**
-	 * Send MIDI message.
+	 * Set if the canvas draws all patterns on one surface instead of each
+	 * pattern as a component of its own. This is faster with many patterns.
+	 * Can be set in the preferences panel.
 	 */
 	@Override public final void execute ( final INotification notification )
 	{
-		ShortMessage shortMessage = ( ShortMessage ) notification.getBody ( );
-		MidiProxy midiProxy = ( MidiProxy ) getFacade ( ).retrieveProxy ( MidiProxy.NAME );
-		midiProxy.sendShortMessage ( shortMessage );
+		boolean isEnabled = ( Boolean ) notification.getBody ( );
+
+		PreferencesProxy preferencesProxy = ( PreferencesProxy ) getFacade ( ).retrieveProxy ( PreferencesProxy.NAME );
+		preferencesProxy.setIsSingleSurfaceCanvasEnabled ( isEnabled );
+
+		EPGPreferences.putBoolean ( EPGPreferences.SINGLE_SURFACE_CANVAS, isEnabled );
+
+		sendNotification ( SeqNotifications.SINGLE_SURFACE_CANVAS_ENABLED, isEnabled );
 	}
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.controller.project;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.swing.JFileChooser;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import org.puremvc.java.multicore.interfaces.INotification;
+import org.puremvc.java.multicore.patterns.command.SimpleCommand;
+
+import com.hisschemoller.epg.model.FileProxy;
+import com.hisschemoller.epg.model.OfflineRenderer;
+import com.hisschemoller.epg.model.SequencerProxy;
+import com.hisschemoller.epg.model.WindowProxy;
+
+public class ExportMidiFileCommand extends SimpleCommand
+{
+	public static final int DEFAULT_BARS = 16;
+
+	/**
+	 * Render the project to a type 1 Standard MIDI File. The notification
+	 * body is the file to write, or null to choose one in a dialog. The type
+	 * is the number of 4/4 bars to render, or null for the default.
+	 */
+	@Override public final void execute ( final INotification notification )
+	{
+		File file = ( File ) notification.getBody ( );
+		int bars = notification.getType ( ) != null ? Integer.parseInt ( notification.getType ( ) ) : DEFAULT_BARS;
+
+		if ( file == null )
+		{
+			file = chooseFile ( );
+			if ( file == null )
+			{
+				return;
+			}
+		}
+
+		SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
+		int pulsesPerQuarterNote = sequencerProxy.getPulsesPerQuarterNote ( );
+
+		try
+		{
+			long startTime = System.nanoTime ( );
+			OfflineRenderer renderer = new OfflineRenderer ( sequencerProxy.getPatterns ( ), pulsesPerQuarterNote );
+			Sequence sequence = renderer.render ( sequencerProxy.getBPM ( ), ( long ) bars * 4 * pulsesPerQuarterNote );
+			MidiSystem.write ( sequence, 1, file );
+			System.out.println ( "ExportMidiFileCommand.execute() " + bars + " bars rendered to " + file.getAbsolutePath ( ) + " in " + ( ( System.nanoTime ( ) - startTime ) / 1000000 ) + " ms." );
+		}
+		catch ( InvalidMidiDataException exception )
+		{
+			System.out.println ( "ExportMidiFileCommand.execute() InvalidMidiDataException: " + exception.getMessage ( ) );
+		}
+		catch ( IOException exception )
+		{
+			System.out.println ( "ExportMidiFileCommand.execute() IOException: " + exception.getMessage ( ) );
+		}
+	}
+
+	/**
+	 * Show file chooser dialog to choose the MIDI file to save.
+	 * @return The file, or null if the dialog was cancelled.
+	 */
+	private File chooseFile ( )
+	{
+		FileProxy fileProxy = ( FileProxy ) getFacade ( ).retrieveProxy ( FileProxy.NAME );
+		WindowProxy windowProxy = ( WindowProxy ) getFacade ( ).retrieveProxy ( WindowProxy.NAME );
+
+		JFileChooser fileChooser = fileProxy.getFileChooser ( );
+		fileChooser.resetChoosableFileFilters ( );
+		fileChooser.setFileFilter ( new FileNameExtensionFilter ( "Standard MIDI Files", "mid", "midi" ) );
+		fileChooser.setDialogTitle ( "Export MIDI File" );
+		fileChooser.setSelectedFile ( new File ( "EPG-Project.mid" ) );
+
+		if ( fileChooser.showSaveDialog ( windowProxy.getMainFrame ( ) ) == JFileChooser.APPROVE_OPTION )
+		{
+			return fileChooser.getSelectedFile ( );
+		}
+
+		return null;
+	}
+}
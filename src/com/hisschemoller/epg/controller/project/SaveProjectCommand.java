@@ -21,6 +21,7 @@
 package com.hisschemoller.epg.controller.project;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Vector;
 
@@ -44,6 +45,7 @@ import org.w3c.dom.CDATASection;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import com.hisschemoller.epg.model.BinaryProjectWriter;
 import com.hisschemoller.epg.model.FileProxy;
 import com.hisschemoller.epg.model.SequencerProxy;
 import com.hisschemoller.epg.model.WindowProxy;
@@ -53,13 +55,28 @@ import com.hisschemoller.epg.notification.SeqNotifications;
 public class SaveProjectCommand extends SimpleCommand
 {
 	/**
-	 * Save a project as an XML file.
+	 * Save a project as an XML file, or in the binary format if the file
+	 * name has the binary project extension.
 	 */
 	@Override public final void execute ( final INotification notification )
 	{
+		File file = chooseFile ( notification.getName ( ) );
+		if ( file == null )
+		{
+			return;
+		}
+
+		System.out.println ( "SaveProjectCommand.execute() file.getAbsolutePath: " + file.getAbsolutePath ( ) );
+
+		if ( BinaryProjectWriter.isBinaryProjectFile ( file ) )
+		{
+			saveBinary ( file );
+			return;
+		}
+
 		Document document = createXML ( );
 		printXML ( document );
-		saveFile ( document, notification.getName ( ) );
+		saveXML ( document, file );
 	}
 
 	private Document createXML ( )
@@ -173,7 +190,10 @@ public class SaveProjectCommand extends SimpleCommand
 		}
 	}
 
-	private void saveFile ( Document document, String saveType )
+	/**
+	 * @return File to save to, asked for if there's none yet or on Save As. null if cancelled.
+	 */
+	private File chooseFile ( String saveType )
 	{
 		FileProxy fileProxy = ( FileProxy ) getFacade ( ).retrieveProxy ( FileProxy.NAME );
 
@@ -191,17 +211,34 @@ public class SaveProjectCommand extends SimpleCommand
 			}
 			else
 			{
-				return;
+				return null;
 			}
 		}
 
-		System.out.println ( "SaveProjectCommand.saveFile() file.getAbsolutePath: " + fileProxy.getFile ( ).getAbsolutePath ( ) );
+		return fileProxy.getFile ( );
+	}
+
+	private void saveBinary ( File file )
+	{
+		SequencerProxy sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
+
+		try
+		{
+			BinaryProjectWriter.write ( file, sequencerProxy.getBPM ( ), sequencerProxy.getPatterns ( ) );
+		}
+		catch ( IOException exception )
+		{
+			System.out.println ( "SaveProjectCommand.saveBinary() IOException: " + exception.getMessage ( ) );
+		}
+	}
 
+	private void saveXML ( Document document, File file )
+	{
 		// Prepare the DOM document for writing.
 		Source source = new DOMSource ( document );
 
 		// Prepare the output file.
-		Result result = new StreamResult ( fileProxy.getFile ( ) );
+		Result result = new StreamResult ( file );
 
 		try
 		{
@@ -212,11 +249,11 @@ public class SaveProjectCommand extends SimpleCommand
 		}
 		catch ( TransformerConfigurationException exception )
 		{
-			System.out.println ( "SaveProjectCommand.saveFile() TransformerConfigurationException: " + exception.getMessage ( ) );
+			System.out.println ( "SaveProjectCommand.saveXML() TransformerConfigurationException: " + exception.getMessage ( ) );
 		}
 		catch ( TransformerException exception )
 		{
-			System.out.println ( "SaveProjectCommand.saveFile() TransformerException: " + exception.getMessage ( ) );
+			System.out.println ( "SaveProjectCommand.saveXML() TransformerException: " + exception.getMessage ( ) );
 		}
 	}
 
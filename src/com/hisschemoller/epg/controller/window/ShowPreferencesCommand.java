@@ -68,10 +68,12 @@ public class ShowPreferencesCommand extends SimpleCommand
 			sendNotification ( SeqNotifications.MIDI_OUT_DEVICE_OPENED, midiProxy.getMidiOutDeviceInfo ( ) );
 			sendNotification ( SeqNotifications.OSC_OUT_DEVICE_ENABLED, sequencerProxy.getOscOutEnabled ( ) );
 			sendNotification ( SeqNotifications.OSC_OUT_PORT_UPDATED, oscProxy.getPort ( ) );
+			sendNotification ( SeqNotifications.OSC_ROUTES_UPDATED, oscProxy.getRoutes ( ) );
 			sendNotification ( SeqNotifications.SYNC_TO_MIDI_IN_ENABLED_UPDATED, preferencesProxy.getIsSyncToMidiInClockEnabled ( ) );
 			sendNotification ( SeqNotifications.TRIGGER_BY_NOTE_UPDATED, sequencerProxy.getTriggeredByMidiNoteEnabled ( ) );
 			sendNotification ( SeqNotifications.DISPLAY_MIDI_NOTE_NAMES_ENABLED, preferencesProxy.getDisplayMidiNoteNamesEnabled ( ) );
 			sendNotification ( SeqNotifications.RELOAD_LAST_PROJECT_ENABLED, preferencesProxy.getIsReloadLastProjectEnabled ( ) );
+			sendNotification ( SeqNotifications.SINGLE_SURFACE_CANVAS_ENABLED, preferencesProxy.getIsSingleSurfaceCanvasEnabled ( ) );
 
 			container.setVisible ( true );
 
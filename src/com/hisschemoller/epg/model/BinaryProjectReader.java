@@ -0,0 +1,294 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import com.hisschemoller.epg.model.data.PatternVO;
+
+/**
+ * Reads the binary project format written by BinaryProjectWriter. The file
+ * is memory mapped and each pattern is a fixed width record, so reading only
+ * checks the header and finds the strings; a pattern is decoded when it's
+ * first asked for.
+ * 
+ * Layout, big endian. Header of HEADER_SIZE bytes: magic "EPGP", version
+ * (short), record size (short), tempo (float), number of patterns (int),
+ * number of strings (int), string table offset (int). Then one record per
+ * pattern, see the RECORD_ constants. Then the string table with names and
+ * OSC addresses, each an int byte length and UTF-8 bytes. Records refer to
+ * strings by index, so equal strings are stored once.
+ * 
+ * A newer version may make the records longer, older readers skip the
+ * fields they don't know.
+ */
+public class BinaryProjectReader implements IProjectReader
+{
+	public static final int MAGIC = 0x45504750;
+	public static final short VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int RECORD_SIZE = 64;
+	public static final String FILE_EXTENSION = "epgp";
+
+	/** Byte offsets in a pattern record. */
+	static final int RECORD_ID = 0;
+	static final int RECORD_STEPS = 16;
+	static final int RECORD_FILLS = 18;
+	static final int RECORD_ROTATION = 20;
+	static final int RECORD_QUANTIZATION = 22;
+	static final int RECORD_NOTE_LENGTH = 24;
+	static final int RECORD_MIDI_OUT_CHANNEL = 26;
+	static final int RECORD_MIDI_OUT_PITCH = 27;
+	static final int RECORD_MIDI_OUT_VELOCITY = 28;
+	static final int RECORD_MIDI_IN_CHANNEL = 29;
+	static final int RECORD_MIDI_IN_PITCH = 30;
+	static final int RECORD_FLAGS = 31;
+	static final int RECORD_VIEW_X = 32;
+	static final int RECORD_VIEW_Y = 36;
+	static final int RECORD_NAME = 40;
+	static final int RECORD_OSC_OUT_ADDRESS = 44;
+
+	/** Bits in the flags byte. */
+	static final int FLAG_TRIGGER_MIDI_IN = 1;
+	static final int FLAG_SOLO = 2;
+	static final int FLAG_MUTE = 4;
+
+	static final Charset UTF8 = Charset.forName ( "UTF-8" );
+
+	private final File _file;
+	private final int _pulsesPerQuarterNote;
+	private ByteBuffer _buffer;
+	private float _tempo;
+	private int _recordSize;
+	private int [ ] _stringOffsets;
+	private String [ ] _strings;
+	private PatternVO [ ] _patterns;
+	private volatile int _numDecoded = 0;
+
+	/**
+	 * @param pulsesPerQuarterNote Sequencer resolution, to set the step lengths.
+	 */
+	public BinaryProjectReader ( File file, int pulsesPerQuarterNote )
+	{
+		_file = file;
+		_pulsesPerQuarterNote = pulsesPerQuarterNote;
+	}
+
+	/**
+	 * @return True if the file starts with the binary project magic number.
+	 */
+	public static boolean isBinaryProject ( File file )
+	{
+		byte [ ] magic = new byte[ 4 ];
+		FileInputStream input = null;
+		try
+		{
+			input = new FileInputStream ( file );
+			return input.read ( magic ) == 4 && ByteBuffer.wrap ( magic ).getInt ( ) == MAGIC;
+		}
+		catch ( IOException exception )
+		{
+			return false;
+		}
+		finally
+		{
+			if ( input != null )
+			{
+				try
+				{
+					input.close ( );
+				}
+				catch ( IOException exception )
+				{
+				}
+			}
+		}
+	}
+
+	/**
+	 * Map the file and check the header and string table.
+	 * @throws IOException If the file isn't a binary project file this version can read.
+	 */
+	public void read ( ) throws IOException
+	{
+		RandomAccessFile randomAccessFile = new RandomAccessFile ( _file, "r" );
+		try
+		{
+			FileChannel channel = randomAccessFile.getChannel ( );
+			_buffer = channel.map ( FileChannel.MapMode.READ_ONLY, 0, channel.size ( ) );
+		}
+		finally
+		{
+			/** The mapping stays valid after the channel is closed. */
+			randomAccessFile.close ( );
+		}
+
+		if ( _buffer.limit ( ) < HEADER_SIZE || _buffer.getInt ( 0 ) != MAGIC )
+		{
+			throw new IOException ( "Not a binary project file." );
+		}
+
+		int version = _buffer.getShort ( 4 );
+		_recordSize = _buffer.getShort ( 6 );
+		if ( version < 1 )
+		{
+			throw new IOException ( "Unsupported binary project version " + version + "." );
+		}
+
+		_tempo = _buffer.getFloat ( 8 );
+		int numPatterns = _buffer.getInt ( 12 );
+		int numStrings = _buffer.getInt ( 16 );
+		int position = _buffer.getInt ( 20 );
+		if ( numPatterns < 1 || _recordSize < RECORD_SIZE || numStrings < 0 || position != HEADER_SIZE + ( ( long ) numPatterns * _recordSize ) || position > _buffer.limit ( ) )
+		{
+			throw new IOException ( "Damaged binary project file." );
+		}
+
+		/** Find the strings, they are decoded when a pattern needs them. */
+		_stringOffsets = new int[ numStrings ];
+		_strings = new String[ numStrings ];
+		for ( int i = 0; i < numStrings; i++ )
+		{
+			if ( position + 4 > _buffer.limit ( ) || position + 4 + _buffer.getInt ( position ) > _buffer.limit ( ) )
+			{
+				throw new IOException ( "Damaged binary project file." );
+			}
+			_stringOffsets[ i ] = position;
+			position += 4 + _buffer.getInt ( position );
+		}
+
+		_patterns = new PatternVO[ numPatterns ];
+	}
+
+	public float getProgress ( )
+	{
+		return _patterns != null ? _numDecoded / ( float ) _patterns.length : 0;
+	}
+
+	public float getTempo ( )
+	{
+		return _tempo;
+	}
+
+	public int getNumPatterns ( )
+	{
+		return _patterns.length;
+	}
+
+	/**
+	 * Decode a pattern if that wasn't done yet.
+	 * @return Pattern without snapshot.
+	 */
+	public PatternVO getPattern ( int index )
+	{
+		if ( _patterns[ index ] == null )
+		{
+			_patterns[ index ] = decodePattern ( HEADER_SIZE + ( index * _recordSize ) );
+			_numDecoded++;
+		}
+
+		return _patterns[ index ];
+	}
+
+	/**
+	 * Decode all patterns.
+	 */
+	public ArrayList < PatternVO > getPatterns ( )
+	{
+		ArrayList < PatternVO > patterns = new ArrayList < PatternVO > ( _patterns.length );
+		for ( int i = 0; i < _patterns.length; i++ )
+		{
+			patterns.add ( getPattern ( i ) );
+		}
+		return patterns;
+	}
+
+	public File getFile ( )
+	{
+		return _file;
+	}
+
+	private PatternVO decodePattern ( int offset )
+	{
+		ByteBuffer buffer = _buffer;
+		PatternVO patternVO = new PatternVO ( );
+		patternVO.id = new UUID ( buffer.getLong ( offset + RECORD_ID ), buffer.getLong ( offset + RECORD_ID + 8 ) );
+		patternVO.steps = buffer.getShort ( offset + RECORD_STEPS );
+		patternVO.fills = buffer.getShort ( offset + RECORD_FILLS );
+		patternVO.rotation = buffer.getShort ( offset + RECORD_ROTATION );
+		patternVO.quantization = buffer.getShort ( offset + RECORD_QUANTIZATION );
+		patternVO.noteLength = buffer.getShort ( offset + RECORD_NOTE_LENGTH );
+		patternVO.midiOutChannel = buffer.get ( offset + RECORD_MIDI_OUT_CHANNEL );
+		patternVO.midiOutPitch = buffer.get ( offset + RECORD_MIDI_OUT_PITCH );
+		patternVO.midiOutVelocity = buffer.get ( offset + RECORD_MIDI_OUT_VELOCITY );
+		patternVO.triggerMidiInChannel = buffer.get ( offset + RECORD_MIDI_IN_CHANNEL );
+		patternVO.triggerMidiInPitch = buffer.get ( offset + RECORD_MIDI_IN_PITCH );
+
+		int flags = buffer.get ( offset + RECORD_FLAGS );
+		patternVO.triggerMidiInEnabled = ( flags & FLAG_TRIGGER_MIDI_IN ) != 0;
+		patternVO.solo = ( flags & FLAG_SOLO ) != 0;
+		patternVO.mute = ( flags & FLAG_MUTE ) != 0;
+
+		patternVO.viewX = buffer.getInt ( offset + RECORD_VIEW_X );
+		patternVO.viewY = buffer.getInt ( offset + RECORD_VIEW_Y );
+		patternVO.name = getString ( buffer.getInt ( offset + RECORD_NAME ) );
+		patternVO.oscOutAddress = getString ( buffer.getInt ( offset + RECORD_OSC_OUT_ADDRESS ) );
+
+		if ( patternVO.quantization > 0 )
+		{
+			patternVO.stepLength = ( _pulsesPerQuarterNote * 4 ) / patternVO.quantization;
+		}
+
+		ProjectReader.completePattern ( patternVO );
+		return patternVO;
+	}
+
+	/**
+	 * @return String from the string table, an empty string for an invalid index.
+	 */
+	private String getString ( int index )
+	{
+		if ( index < 0 || index >= _strings.length )
+		{
+			return "";
+		}
+
+		if ( _strings[ index ] == null )
+		{
+			int offset = _stringOffsets[ index ];
+			byte [ ] bytes = new byte[ _buffer.getInt ( offset ) ];
+			ByteBuffer buffer = _buffer.duplicate ( );
+			buffer.position ( offset + 4 );
+			buffer.get ( bytes );
+			_strings[ index ] = new String ( bytes, UTF8 );
+		}
+
+		return _strings[ index ];
+	}
+}
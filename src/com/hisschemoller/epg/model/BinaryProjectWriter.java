@@ -0,0 +1,148 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.hisschemoller.epg.model.data.PatternVO;
+
+/**
+ * Writes a project in the binary format BinaryProjectReader reads. The whole
+ * file is encoded into one buffer and written with a single channel write.
+ */
+public class BinaryProjectWriter
+{
+	/**
+	 * @return True if the file name has the binary project extension.
+	 */
+	public static boolean isBinaryProjectFile ( File file )
+	{
+		return file.getName ( ).toLowerCase ( ).endsWith ( "." + BinaryProjectReader.FILE_EXTENSION );
+	}
+
+	/**
+	 * @param tempo Tempo in BPM.
+	 * @param patterns Patterns in the order they are saved.
+	 */
+	public static void write ( File file, float tempo, List < PatternVO > patterns ) throws IOException
+	{
+		/** Intern the strings, equal names and addresses are stored once. */
+		HashMap < String, Integer > stringIndexes = new HashMap < String, Integer > ( );
+		ArrayList < byte [ ] > strings = new ArrayList < byte [ ] > ( );
+		int [ ] nameIndexes = new int[ patterns.size ( ) ];
+		int [ ] addressIndexes = new int[ patterns.size ( ) ];
+		int stringTableSize = 0;
+		for ( int i = 0; i < patterns.size ( ); i++ )
+		{
+			PatternVO patternVO = patterns.get ( i );
+			String [ ] values = { patternVO.name, patternVO.oscOutAddress };
+			for ( int j = 0; j < values.length; j++ )
+			{
+				String value = values[ j ] != null ? values[ j ] : "";
+				Integer index = stringIndexes.get ( value );
+				if ( index == null )
+				{
+					byte [ ] bytes = value.getBytes ( BinaryProjectReader.UTF8 );
+					index = strings.size ( );
+					stringIndexes.put ( value, index );
+					strings.add ( bytes );
+					stringTableSize += 4 + bytes.length;
+				}
+				if ( j == 0 )
+				{
+					nameIndexes[ i ] = index;
+				}
+				else
+				{
+					addressIndexes[ i ] = index;
+				}
+			}
+		}
+
+		int stringTableOffset = BinaryProjectReader.HEADER_SIZE + ( patterns.size ( ) * BinaryProjectReader.RECORD_SIZE );
+		ByteBuffer buffer = ByteBuffer.allocate ( stringTableOffset + stringTableSize );
+
+		/** Header. */
+		buffer.putInt ( BinaryProjectReader.MAGIC );
+		buffer.putShort ( BinaryProjectReader.VERSION );
+		buffer.putShort ( ( short ) BinaryProjectReader.RECORD_SIZE );
+		buffer.putFloat ( tempo );
+		buffer.putInt ( patterns.size ( ) );
+		buffer.putInt ( strings.size ( ) );
+		buffer.putInt ( stringTableOffset );
+
+		/** Pattern records. */
+		for ( int i = 0; i < patterns.size ( ); i++ )
+		{
+			PatternVO patternVO = patterns.get ( i );
+			int offset = BinaryProjectReader.HEADER_SIZE + ( i * BinaryProjectReader.RECORD_SIZE );
+			int flags = ( patternVO.triggerMidiInEnabled ? BinaryProjectReader.FLAG_TRIGGER_MIDI_IN : 0 ) | ( patternVO.solo ? BinaryProjectReader.FLAG_SOLO : 0 ) | ( patternVO.mute ? BinaryProjectReader.FLAG_MUTE : 0 );
+
+			buffer.putLong ( offset + BinaryProjectReader.RECORD_ID, patternVO.id.getMostSignificantBits ( ) );
+			buffer.putLong ( offset + BinaryProjectReader.RECORD_ID + 8, patternVO.id.getLeastSignificantBits ( ) );
+			buffer.putShort ( offset + BinaryProjectReader.RECORD_STEPS, ( short ) patternVO.steps );
+			buffer.putShort ( offset + BinaryProjectReader.RECORD_FILLS, ( short ) patternVO.fills );
+			buffer.putShort ( offset + BinaryProjectReader.RECORD_ROTATION, ( short ) patternVO.rotation );
+			buffer.putShort ( offset + BinaryProjectReader.RECORD_QUANTIZATION, ( short ) patternVO.quantization );
+			buffer.putShort ( offset + BinaryProjectReader.RECORD_NOTE_LENGTH, ( short ) patternVO.noteLength );
+			buffer.put ( offset + BinaryProjectReader.RECORD_MIDI_OUT_CHANNEL, ( byte ) patternVO.midiOutChannel );
+			buffer.put ( offset + BinaryProjectReader.RECORD_MIDI_OUT_PITCH, ( byte ) patternVO.midiOutPitch );
+			buffer.put ( offset + BinaryProjectReader.RECORD_MIDI_OUT_VELOCITY, ( byte ) patternVO.midiOutVelocity );
+			buffer.put ( offset + BinaryProjectReader.RECORD_MIDI_IN_CHANNEL, ( byte ) patternVO.triggerMidiInChannel );
+			buffer.put ( offset + BinaryProjectReader.RECORD_MIDI_IN_PITCH, ( byte ) patternVO.triggerMidiInPitch );
+			buffer.put ( offset + BinaryProjectReader.RECORD_FLAGS, ( byte ) flags );
+			buffer.putInt ( offset + BinaryProjectReader.RECORD_VIEW_X, patternVO.viewX );
+			buffer.putInt ( offset + BinaryProjectReader.RECORD_VIEW_Y, patternVO.viewY );
+			buffer.putInt ( offset + BinaryProjectReader.RECORD_NAME, nameIndexes[ i ] );
+			buffer.putInt ( offset + BinaryProjectReader.RECORD_OSC_OUT_ADDRESS, addressIndexes[ i ] );
+		}
+
+		/** String table. */
+		buffer.position ( stringTableOffset );
+		for ( int i = 0; i < strings.size ( ); i++ )
+		{
+			buffer.putInt ( strings.get ( i ).length );
+			buffer.put ( strings.get ( i ) );
+		}
+		buffer.flip ( );
+
+		FileOutputStream output = new FileOutputStream ( file );
+		try
+		{
+			FileChannel channel = output.getChannel ( );
+			while ( buffer.hasRemaining ( ) )
+			{
+				channel.write ( buffer );
+			}
+		}
+		finally
+		{
+			output.close ( );
+		}
+	}
+}
@@ -36,25 +36,30 @@ public class FileProxy extends Proxy
 	public static final String NAME = FileProxy.class.getName ( );
 	private JFileChooser _fileChooser;
 	private File _file;
+	private boolean _isLoading = false;
 
 	public FileProxy ( )
 	{
 		super ( NAME );
 	}
 
-	@Override public final void onRegister ( )
-	{
-		File lastUsedDirectory = new File ( EPGPreferences.get ( EPGPreferences.LAST_USED_DIR, System.getProperty ( "user.home" ) ) );
-		_fileChooser = new JFileChooser ( lastUsedDirectory );
-	}
-
 	@Override public final void onRemove ( )
 	{
 		_fileChooser = null;
 	}
 
+	/**
+	 * The file chooser is created when it's first needed, so a headless run
+	 * doesn't load Swing.
+	 */
 	public JFileChooser getFileChooser ( )
 	{
+		if ( _fileChooser == null )
+		{
+			File lastUsedDirectory = new File ( EPGPreferences.get ( EPGPreferences.LAST_USED_DIR, System.getProperty ( "user.home" ) ) );
+			_fileChooser = new JFileChooser ( lastUsedDirectory );
+		}
+
 		return _fileChooser;
 	}
 
@@ -88,4 +93,17 @@ public class FileProxy extends Proxy
 	{
 		return _file;
 	}
+
+	/**
+	 * @return True while a project file is read in the background.
+	 */
+	public boolean getIsLoading ( )
+	{
+		return _isLoading;
+	}
+
+	public void setIsLoading ( boolean isLoading )
+	{
+		_isLoading = isLoading;
+	}
 }
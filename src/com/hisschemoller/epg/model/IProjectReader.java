@@ -18,47 +18,39 @@
  * see <http://www.gnu.org/licenses/>.
  */
 
-package com.hisschemoller.epg.util;
+package com.hisschemoller.epg.model;
 
-import javax.sound.midi.MidiEvent;
+import java.io.File;
+import java.util.ArrayList;
 
 import com.hisschemoller.epg.model.data.PatternVO;
 
-public class NoteOffThread extends Thread
+/**
+ * Reads a project file into patterns without touching the sequencer, so it
+ * can run on any thread.
+ */
+public interface IProjectReader
 {
-	private ISequenceable _sequenceable;
-	private PatternVO _patternVO;
-	private MidiEvent _midiEvent;
-	private long _sleepDuration;
-
-	public NoteOffThread ( ISequenceable sequenceable, PatternVO patternVO, MidiEvent midiEvent, long sleepDuration )
-	{
-		_sequenceable = sequenceable;
-		_patternVO = patternVO;
-		_midiEvent = midiEvent;
-		_sleepDuration = sleepDuration;
-	}
-
-	public void run ( )
-	{
-		try
-		{
-			Thread.sleep ( _sleepDuration );
-			_sequenceable.onPatternNoteEnd ( _patternVO, _midiEvent );
-		}
-		catch ( InterruptedException exception )
-		{
-			System.out.println ( "NoteOffThread: force quit..." );
-		}
-	}
-
-	public PatternVO getPatternVO ( )
-	{
-		return _patternVO;
-	}
-
-	public MidiEvent getMidiEvent ( )
-	{
-		return _midiEvent;
-	}
+	/**
+	 * Read the file.
+	 * @throws Exception If the file can't be read or isn't a project file.
+	 */
+	public void read ( ) throws Exception;
+
+	/**
+	 * @return Part of the file read so far, 0 to 1.
+	 */
+	public float getProgress ( );
+
+	/**
+	 * @return Tempo in BPM, 0 if the file has none.
+	 */
+	public float getTempo ( );
+
+	/**
+	 * @return Patterns in file order, without snapshots.
+	 */
+	public ArrayList < PatternVO > getPatterns ( );
+
+	public File getFile ( );
 }
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import com.hisschemoller.epg.model.data.PatternSnapshot;
+import com.hisschemoller.epg.model.data.PatternVO;
+import com.hisschemoller.epg.util.INoteEventListener;
+
+/**
+ * Renders a project to a MIDI sequence as fast as possible. A sequencer of
+ * its own plays copies of the patterns, so live playback isn't disturbed,
+ * and is driven pulse by pulse from a loop instead of a clock. The notes it
+ * plays are passed directly to the renderer, not through the view's ring
+ * which drops notes when full, and written to a track per pattern with the
+ * pulse as tick. A render that doesn't end every note it started fails.
+ * 
+ * The patterns play as they are set when the renderer is created: steps,
+ * rotation, note length, and whether they play, so mute and solo apply.
+ * The result only depends on the settings, which makes it usable to check
+ * the timing of the sequencer.
+ */
+public class OfflineRenderer implements INoteEventListener
+{
+	private static final int META_TRACK_NAME = 0x03;
+	private static final int META_TEMPO = 0x51;
+	private SequencerProxy _sequencer;
+	private HashMap<UUID, PatternSnapshot> _snapshots = new HashMap<UUID, PatternSnapshot> ( );
+	private HashMap<UUID, Track> _tracks = new HashMap<UUID, Track> ( );
+	private long _tick;
+	private int _numNotesPlaying;
+	private InvalidMidiDataException _exception;
+
+	/**
+	 * @param patterns Patterns to render, they're copied and not changed.
+	 * @param pulsesPerQuarterNote Resolution the patterns' snapshots are built for.
+	 */
+	public OfflineRenderer ( List < PatternVO > patterns, int pulsesPerQuarterNote )
+	{
+		_sequencer = new SequencerProxy ( pulsesPerQuarterNote );
+		_sequencer.setNoteListener ( this );
+
+		for ( int i = 0; i < patterns.size ( ); i++ )
+		{
+			PatternVO patternVO = patterns.get ( i );
+			PatternVO copy = new PatternVO ( );
+			copy.id = patternVO.id;
+			copy.name = patternVO.name;
+			copy.snapshot = patternVO.snapshot;
+			_sequencer.getPatterns ( ).add ( copy );
+			_snapshots.put ( copy.id, copy.snapshot );
+		}
+
+		_sequencer.updatePlaylist ( );
+	}
+
+	/**
+	 * Play the patterns from the start for a number of pulses.
+	 * @param bpm Tempo written to the first track.
+	 * @param pulses Duration in pulses of the sequencer's resolution.
+	 * @return Type 1 sequence with a tempo track and a track for each pattern.
+	 * @throws InvalidMidiDataException If a note couldn't be written, or not every note was ended.
+	 */
+	public Sequence render ( float bpm, long pulses ) throws InvalidMidiDataException
+	{
+		Sequence sequence = new Sequence ( Sequence.PPQ, _sequencer.getPulsesPerQuarterNote ( ) );
+
+		Track tempoTrack = sequence.createTrack ( );
+		int microsecondsPerQuarterNote = Math.round ( 60000000 / bpm );
+		byte [ ] tempo = { ( byte ) ( microsecondsPerQuarterNote >> 16 ), ( byte ) ( microsecondsPerQuarterNote >> 8 ), ( byte ) microsecondsPerQuarterNote };
+		tempoTrack.add ( new MidiEvent ( new MetaMessage ( META_TEMPO, tempo, tempo.length ), 0 ) );
+
+		List < PatternVO > patterns = _sequencer.getPatterns ( );
+		for ( int i = 0; i < patterns.size ( ); i++ )
+		{
+			PatternVO patternVO = patterns.get ( i );
+			Track track = sequence.createTrack ( );
+			if ( patternVO.name != null )
+			{
+				byte [ ] name = patternVO.name.getBytes ( );
+				track.add ( new MidiEvent ( new MetaMessage ( META_TRACK_NAME, name, name.length ), 0 ) );
+			}
+			_tracks.put ( patternVO.id, track );
+		}
+
+		/** Same as starting playback: all patterns at position 0 on the first pulse. */
+		_sequencer.onSongPosition ( 0 );
+
+		long pulse = 0;
+		int pulsesToNextEvent = 1;
+		while ( pulse + pulsesToNextEvent <= pulses )
+		{
+			pulse += pulsesToNextEvent;
+			_tick = pulse - 1;
+			pulsesToNextEvent = Math.max ( 1, _sequencer.onClock ( -1, pulsesToNextEvent ) );
+		}
+
+		/** End the notes that still play at the end of the sequence. */
+		_tick = pulses;
+		_sequencer.stop ( );
+
+		if ( _exception != null )
+		{
+			throw _exception;
+		}
+		if ( _numNotesPlaying != 0 )
+		{
+			throw new InvalidMidiDataException ( "Rendered notes don't match, " + _numNotesPlaying + " Note On without Note Off." );
+		}
+
+		return sequence;
+	}
+
+	/**
+	 * Write a note the sequencer played to the track of its pattern. Called
+	 * by the sequencer while it renders a pulse.
+	 */
+	public void noteEventHandler ( UUID patternID, int midiStatus, int stepIndex )
+	{
+		_numNotesPlaying += midiStatus == ShortMessage.NOTE_ON ? 1 : -1;
+
+		PatternSnapshot snapshot = _snapshots.get ( patternID );
+		try
+		{
+			ShortMessage message = new ShortMessage ( );
+			message.setMessage ( midiStatus, snapshot.midiOutChannel, snapshot.midiOutPitch, snapshot.midiOutVelocity );
+			_tracks.get ( patternID ).add ( new MidiEvent ( message, _tick ) );
+		}
+		catch ( InvalidMidiDataException exception )
+		{
+			if ( _exception == null )
+			{
+				_exception = exception;
+			}
+		}
+	}
+}
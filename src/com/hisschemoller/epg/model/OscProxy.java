@@ -20,64 +20,177 @@
 
 package com.hisschemoller.epg.model;
 
-import netP5.NetAddress;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
 
 import org.puremvc.java.multicore.patterns.proxy.Proxy;
 
-import oscP5.OscMessage;
-import oscP5.OscP5;
+import com.hisschemoller.epg.util.OscOutPort;
+import com.hisschemoller.epg.util.OscTarget;
 
 public final class OscProxy extends Proxy
 {
 	public static String NAME = OscProxy.class.getName ( );
-	private OscP5 _oscP5;
-	private NetAddress _localhost;
+	private OscOutPort _oscOutPort;
+	private int _port = 0;
+	private String _routes = "";
 
 	public OscProxy ( )
 	{
 		super ( NAME );
 	}
 
-	@Override public void onRegister ( )
+	@Override public void onRemove ( )
 	{
-		_oscP5 = new OscP5 ( new Object ( ), 9001 );
-		// setNetAddress ( 9000 ); Done in StartupCommand.
+		if ( _oscOutPort != null )
+		{
+			_oscOutPort.close ( );
+		}
 	}
 
-	@Override public void onRemove ( )
+	/**
+	 * Send to a port on localhost, the previous port is closed.
+	 */
+	public void setNetAddress ( int port )
 	{
-		_oscP5.stop ( );
-		_oscP5.dispose ( );
+		_port = port;
+		openPort ( );
 	}
 
-	public void setNetAddress ( int port )
+	/**
+	 * Set the routes that send messages to other destinations than the
+	 * default port, for example "/eu/pattern1=localhost:9001 10.0.0.2:9000".
+	 * Routes are separated by semicolons or new lines. Messages no route
+	 * matches go to the default port.
+	 */
+	public void setRoutes ( String routes )
 	{
-		/** Port can't be 9001. */
-		port = ( port == 9001 ) ? 9000 : port;
-		_localhost = new NetAddress ( "localhost", port );
+		_routes = routes;
+		openPort ( );
 	}
 
 	public int getPort ( )
 	{
-		return ( _localhost != null ) ? _localhost.port ( ) : 0;
+		return _port;
+	}
+
+	public String getRoutes ( )
+	{
+		return _routes;
+	}
+
+	/**
+	 * @return Output port the sequencer sends to, null if no port could be opened.
+	 */
+	public OscOutPort getOscOutPort ( )
+	{
+		return _oscOutPort;
+	}
+
+	/**
+	 * Open a new output port with a target for each destination. Routes that
+	 * can't be parsed or opened are skipped.
+	 */
+	private void openPort ( )
+	{
+		if ( _oscOutPort != null )
+		{
+			_oscOutPort.close ( );
+			_oscOutPort = null;
+		}
+
+		HashMap<String, OscTarget> targets = new HashMap<String, OscTarget> ( );
+		OscTarget [ ] defaultTargets = new OscTarget[ 0 ];
+		OscTarget defaultTarget = getTarget ( targets, "localhost:" + _port );
+		if ( defaultTarget != null )
+		{
+			defaultTargets = new OscTarget [ ] { defaultTarget };
+		}
+
+		ArrayList<String> routePrefixes = new ArrayList<String> ( );
+		ArrayList<OscTarget [ ]> routeTargets = new ArrayList<OscTarget [ ]> ( );
+		String [ ] routes = _routes.split ( "[;\\n]" );
+		for ( int i = 0; i < routes.length; i++ )
+		{
+			String route = routes[ i ].trim ( );
+			if ( route.length ( ) == 0 )
+			{
+				continue;
+			}
+
+			int separatorIndex = route.indexOf ( '=' );
+			String prefix = separatorIndex > 0 ? route.substring ( 0, separatorIndex ).trim ( ) : "";
+			if ( !prefix.startsWith ( "/" ) )
+			{
+				System.out.println ( "OscProxy.openPort() Invalid route: " + route );
+				continue;
+			}
+
+			ArrayList<OscTarget> destinations = new ArrayList<OscTarget> ( );
+			String [ ] addresses = route.substring ( separatorIndex + 1 ).trim ( ).split ( "[\\s,]+" );
+			for ( int j = 0; j < addresses.length; j++ )
+			{
+				OscTarget target = getTarget ( targets, addresses[ j ] );
+				if ( target != null && !destinations.contains ( target ) )
+				{
+					destinations.add ( target );
+				}
+			}
+
+			if ( destinations.size ( ) > 0 )
+			{
+				routePrefixes.add ( prefix );
+				routeTargets.add ( destinations.toArray ( new OscTarget[ destinations.size ( ) ] ) );
+			}
+		}
+
+		ArrayList<OscTarget> openTargets = new ArrayList<OscTarget> ( );
+		for ( OscTarget target : targets.values ( ) )
+		{
+			if ( target != null )
+			{
+				openTargets.add ( target );
+			}
+		}
+
+		if ( openTargets.size ( ) > 0 )
+		{
+			_oscOutPort = new OscOutPort ( openTargets.toArray ( new OscTarget[ openTargets.size ( ) ] ), defaultTargets, routePrefixes.toArray ( new String[ routePrefixes.size ( ) ] ), routeTargets.toArray ( new OscTarget[ routeTargets.size ( ) ][ ] ) );
+		}
 	}
 
-	public void send ( final OscMessage oscMessage )
+	/**
+	 * Find or open the target for a "host:port" address, so destinations
+	 * shared by several routes get one queue.
+	 * @return The target, null if the address is invalid or can't be opened.
+	 */
+	private OscTarget getTarget ( HashMap<String, OscTarget> targets, String address )
 	{
-		StringBuilder sb = new StringBuilder ( );
-		sb.append ( "sending osc message " );
-		sb.append ( oscMessage.addrPattern ( ) );
-		sb.append ( " " );
-		sb.append ( oscMessage.get ( 0 ).intValue ( ) );
-		sb.append ( " " );
-		sb.append ( oscMessage.get ( 1 ).intValue ( ) );
-		sb.append ( " " );
-		sb.append ( oscMessage.get ( 2 ).intValue ( ) );
-		sb.append ( " " );
-		sb.append ( oscMessage.get ( 3 ).intValue ( ) );
-		sb.append ( " to " );
-		sb.append ( _localhost.toString ( ) );
-		System.out.println ( sb.toString ( ) );
-		_oscP5.send ( oscMessage, _localhost );
+		if ( targets.containsKey ( address ) )
+		{
+			return targets.get ( address );
+		}
+
+		OscTarget target = null;
+		int separatorIndex = address.lastIndexOf ( ':' );
+		try
+		{
+			String host = address.substring ( 0, separatorIndex );
+			int port = Integer.parseInt ( address.substring ( separatorIndex + 1 ) );
+			target = new OscTarget ( new InetSocketAddress ( host, port ) );
+		}
+		catch ( IOException exception )
+		{
+			System.out.println ( "OscProxy.getTarget() IOException: " + exception.getMessage ( ) );
+		}
+		catch ( RuntimeException exception )
+		{
+			System.out.println ( "OscProxy.getTarget() Invalid address: " + address );
+		}
+
+		targets.put ( address, target );
+		return target;
 	}
 }
@@ -28,6 +28,7 @@ public class PreferencesProxy extends Proxy
 	private boolean _isSyncToMidiInClockEnabled;
 	private boolean _displayMidiNoteNamesEnabled;
 	private boolean _isReloadLastProjectEnabled;
+	private boolean _isSingleSurfaceCanvasEnabled;
 
 	public PreferencesProxy ( )
 	{
@@ -63,4 +64,14 @@ public class PreferencesProxy extends Proxy
 	{
 		return _isReloadLastProjectEnabled;
 	}
+
+	public void setIsSingleSurfaceCanvasEnabled ( boolean isSingleSurfaceCanvasEnabled )
+	{
+		_isSingleSurfaceCanvasEnabled = isSingleSurfaceCanvasEnabled;
+	}
+
+	public boolean getIsSingleSurfaceCanvasEnabled ( )
+	{
+		return _isSingleSurfaceCanvasEnabled;
+	}
 }
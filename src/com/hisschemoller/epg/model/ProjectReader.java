@@ -0,0 +1,280 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.hisschemoller.epg.model.data.EPGEnums.Quantization;
+import com.hisschemoller.epg.model.data.PatternVO;
+import com.hisschemoller.epg.util.MidiUtils;
+
+/**
+ * Reads a project XML file in a single streaming pass. Each pattern element
+ * becomes a PatternVO, nothing is kept of the document itself. The reader
+ * doesn't touch the sequencer, so it can run on any thread while the current
+ * project keeps playing.
+ */
+public class ProjectReader implements IProjectReader
+{
+	private final File _file;
+	private final int _pulsesPerQuarterNote;
+	private final ArrayList < PatternVO > _patterns = new ArrayList < PatternVO > ( );
+	private float _tempo;
+	private long _length;
+	private volatile long _bytesRead = 0;
+
+	/**
+	 * @param pulsesPerQuarterNote Sequencer resolution, to set the step lengths.
+	 */
+	public ProjectReader ( File file, int pulsesPerQuarterNote )
+	{
+		_file = file;
+		_pulsesPerQuarterNote = pulsesPerQuarterNote;
+	}
+
+	/**
+	 * Read the file.
+	 * @throws XMLStreamException If the file isn't a project XML file.
+	 */
+	public void read ( ) throws IOException, XMLStreamException
+	{
+		_length = _file.length ( );
+
+		XMLInputFactory factory = XMLInputFactory.newInstance ( );
+		factory.setProperty ( XMLInputFactory.SUPPORT_DTD, false );
+		factory.setProperty ( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+
+		InputStream input = new CountingInputStream ( new FileInputStream ( _file ) );
+		XMLStreamReader reader = factory.createXMLStreamReader ( input );
+
+		try
+		{
+			if ( reader.nextTag ( ) != XMLStreamConstants.START_ELEMENT || !reader.getLocalName ( ).equals ( "project" ) )
+			{
+				throw new XMLStreamException ( "Wrong document element. This is not a Project XML file." );
+			}
+
+			String tempo = getAttribute ( reader, "tempo" );
+			_tempo = tempo.equals ( "" ) ? 0 : Float.parseFloat ( tempo );
+
+			PatternVO patternVO = null;
+			while ( reader.hasNext ( ) )
+			{
+				int event = reader.next ( );
+				if ( event == XMLStreamConstants.START_ELEMENT )
+				{
+					String name = reader.getLocalName ( );
+					if ( name.equals ( "pattern" ) )
+					{
+						patternVO = createPattern ( reader );
+					}
+					else if ( patternVO != null )
+					{
+						readElement ( reader, name, patternVO );
+					}
+				}
+				else if ( event == XMLStreamConstants.END_ELEMENT && patternVO != null && reader.getLocalName ( ).equals ( "pattern" ) )
+				{
+					completePattern ( patternVO );
+					_patterns.add ( patternVO );
+					patternVO = null;
+				}
+			}
+
+			if ( _patterns.size ( ) == 0 )
+			{
+				throw new XMLStreamException ( "No pattern nodes. This is not a Project XML file." );
+			}
+		}
+		finally
+		{
+			reader.close ( );
+			input.close ( );
+			_bytesRead = _length;
+		}
+	}
+
+	/**
+	 * @return Part of the file read so far, 0 to 1.
+	 */
+	public float getProgress ( )
+	{
+		return _length > 0 ? Math.min ( 1f, _bytesRead / ( float ) _length ) : 0;
+	}
+
+	/**
+	 * @return Tempo in BPM, 0 if the file has none.
+	 */
+	public float getTempo ( )
+	{
+		return _tempo;
+	}
+
+	/**
+	 * @return Patterns in file order, without snapshots.
+	 */
+	public ArrayList < PatternVO > getPatterns ( )
+	{
+		return _patterns;
+	}
+
+	public File getFile ( )
+	{
+		return _file;
+	}
+
+	private PatternVO createPattern ( XMLStreamReader reader )
+	{
+		PatternVO patternVO = new PatternVO ( );
+
+		try
+		{
+			patternVO.id = UUID.fromString ( getAttribute ( reader, "id" ) );
+		}
+		catch ( IllegalArgumentException exception )
+		{
+			patternVO.id = UUID.randomUUID ( );
+		}
+
+		return patternVO;
+	}
+
+	/**
+	 * Read the settings from one of the elements in a pattern.
+	 */
+	private void readElement ( XMLStreamReader reader, String name, PatternVO patternVO ) throws XMLStreamException
+	{
+		if ( name.equals ( "events" ) )
+		{
+			patternVO.steps = Integer.parseInt ( getAttribute ( reader, "steps" ) );
+			patternVO.fills = Integer.parseInt ( getAttribute ( reader, "notes" ) );
+			patternVO.rotation = Integer.parseInt ( getAttribute ( reader, "rotation" ) );
+		}
+		else if ( name.equals ( "osc_out" ) )
+		{
+			patternVO.oscOutAddress = getAttribute ( reader, "address" );
+		}
+		else if ( name.equals ( "midi_out" ) )
+		{
+			patternVO.midiOutChannel = Integer.parseInt ( getAttribute ( reader, "channel" ) );
+			patternVO.midiOutPitch = Integer.parseInt ( getAttribute ( reader, "pitch" ) );
+			patternVO.midiOutVelocity = Integer.parseInt ( getAttribute ( reader, "velocity" ) );
+		}
+		else if ( name.equals ( "midi_in" ) )
+		{
+			String enabled = getAttribute ( reader, "trigger_enabled" );
+			String channel = getAttribute ( reader, "channel" );
+			String pitch = getAttribute ( reader, "pitch" );
+
+			patternVO.triggerMidiInEnabled = enabled.equals ( "" ) ? false : Boolean.parseBoolean ( enabled );
+			patternVO.triggerMidiInChannel = channel.equals ( "" ) ? 9 : Integer.parseInt ( channel );
+			patternVO.triggerMidiInPitch = pitch.equals ( "" ) ? 60 : Integer.parseInt ( pitch );
+		}
+		else if ( name.equals ( "settings" ) )
+		{
+			String notelength = getAttribute ( reader, "notelength" );
+			String quantization = getAttribute ( reader, "quantization" );
+
+			patternVO.noteLength = notelength.equals ( "" ) ? MidiUtils.MIDI_CLOCK_PPQN / 4 : Integer.parseInt ( notelength );
+			patternVO.quantization = quantization.equals ( "" ) ? Quantization.Q16.getValue ( ) : Integer.parseInt ( quantization );
+			patternVO.stepLength = ( _pulsesPerQuarterNote * 4 ) / patternVO.quantization;
+			patternVO.solo = Boolean.parseBoolean ( getAttribute ( reader, "solo" ) );
+			patternVO.mute = Boolean.parseBoolean ( getAttribute ( reader, "mute" ) );
+		}
+		else if ( name.equals ( "location" ) )
+		{
+			patternVO.viewX = Integer.parseInt ( getAttribute ( reader, "x" ) );
+			patternVO.viewY = Integer.parseInt ( getAttribute ( reader, "y" ) );
+		}
+		else if ( name.equals ( "name" ) )
+		{
+			patternVO.name = reader.getElementText ( );
+		}
+	}
+
+	/**
+	 * Set the values that follow from the settings once all are read. The
+	 * Euclid / Bjorklund pattern is looked up when the snapshot is published.
+	 */
+	static void completePattern ( PatternVO patternVO )
+	{
+		patternVO.patternLength = patternVO.steps * patternVO.stepLength;
+		patternVO.position = 0;
+	}
+
+	/**
+	 * @return Attribute value, an empty string if there's no such attribute.
+	 */
+	private static String getAttribute ( XMLStreamReader reader, String name )
+	{
+		String value = reader.getAttributeValue ( null, name );
+		return value != null ? value : "";
+	}
+
+	/**
+	 * Counts the bytes the parser has read, for the progress.
+	 */
+	private class CountingInputStream extends FilterInputStream
+	{
+		CountingInputStream ( InputStream input )
+		{
+			super ( input );
+		}
+
+		@Override public int read ( ) throws IOException
+		{
+			int value = super.read ( );
+			if ( value != -1 )
+			{
+				_bytesRead++;
+			}
+			return value;
+		}
+
+		@Override public int read ( byte [ ] buffer, int offset, int length ) throws IOException
+		{
+			int count = super.read ( buffer, offset, length );
+			if ( count > 0 )
+			{
+				_bytesRead += count;
+			}
+			return count;
+		}
+
+		@Override public long skip ( long count ) throws IOException
+		{
+			long skipped = super.skip ( count );
+			_bytesRead += skipped;
+			return skipped;
+		}
+	}
+}
@@ -20,121 +20,234 @@
 
 package com.hisschemoller.epg.model;
 
-import java.util.Date;
 import java.util.UUID;
 import java.util.Vector;
 
-import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiEvent;
 import javax.sound.midi.ShortMessage;
 
 import org.puremvc.java.multicore.patterns.proxy.Proxy;
 
-import oscP5.OscMessage;
-
 import com.hisschemoller.epg.model.data.EPGEnums;
+import com.hisschemoller.epg.model.data.PatternSnapshot;
 import com.hisschemoller.epg.model.data.PatternVO;
 import com.hisschemoller.epg.model.data.EPGEnums.ClockSourceType;
 import com.hisschemoller.epg.notification.SeqNotifications;
-import com.hisschemoller.epg.notification.note.PatternPositionNote;
-import com.hisschemoller.epg.notification.note.PatternSequenceNote;
+import com.hisschemoller.epg.util.HitTable;
 import com.hisschemoller.epg.util.IClockSource;
+import com.hisschemoller.epg.util.INoteEventListener;
 import com.hisschemoller.epg.util.ISequenceable;
 import com.hisschemoller.epg.util.MidiInNoteSource;
-import com.hisschemoller.epg.util.NoteOffThread;
+import com.hisschemoller.epg.util.MidiOutPort;
+import com.hisschemoller.epg.util.MidiUtils;
+import com.hisschemoller.epg.util.NoteEventRing;
+import com.hisschemoller.epg.util.NoteOffScheduler;
+import com.hisschemoller.epg.util.OscOutPort;
+import com.hisschemoller.epg.util.PatternQueue;
 
 public class SequencerProxy extends Proxy implements ISequenceable
 {
 	public static final String NAME = SequencerProxy.class.getName ( );
-	private final int PULSES_PER_QUARTER_NOTE = 24;
+	public static final int DEFAULT_PULSES_PER_QUARTER_NOTE = 960;
+	private final int _pulsesPerQuarterNote;
 	private IClockSource _clockSource;
 	private ClockSourceType _clockSourceType;
 	private MidiInNoteSource _midiInNoteSource;
+	private volatile MidiOutPort _midiOutPort;
+	private volatile long _pulseTime = -1;
+	private int _lookahead = 0;
 	private Vector < PatternVO > _patterns = new Vector < PatternVO > ( );
+	private volatile PatternVO [ ] _playlist = new PatternVO[ 0 ];
 	private PatternVO _selectedPattern;
-	private long _screenRedrawInterval = 30l;
-	private long _screenRedrawTime;
-	private NoteOffThread [ ][ ] _noteMatrix = new NoteOffThread[ 16 ][ 128 ];
-	private PatternPositionNote [ ] _positionNotes = new PatternPositionNote[ 0 ];
+	private NoteOffScheduler _noteOffScheduler;
+	private NoteEventRing _noteEvents = new NoteEventRing ( );
+	private INoteEventListener _noteListener;
+	/** Held while a pulse is rendered or notes are ended on stop, so only one thread plays notes at a time. */
+	private final Object _pulseLock = new Object ( );
+	private volatile long _pulse;
+	private PatternQueue _queue = new PatternQueue ( );
+	private volatile boolean _isPlaylistChanged = false;
+	private volatile int _triggerDelay = 0;
+	private int _playedTriggerDelay = 0;
 	private boolean _isMidiOutEnabled = true;
+	private volatile OscOutPort _oscOutPort;
 	private boolean _isOscOutEnabled = true;
 	private boolean _isTriggeredByMidiNoteEnabled;
-	private float _millisPerPulse;
 	private float _beatsPerMinute;
 
-	public SequencerProxy ( )
+	/**
+	 * @param pulsesPerQuarterNote Sequencer resolution, rounded down to a
+	 *        multiple of the 24 PPQN MIDI clock so every quantization and MIDI
+	 *        clock tick falls on a whole pulse.
+	 */
+	public SequencerProxy ( int pulsesPerQuarterNote )
 	{
 		super ( NAME );
+		_pulsesPerQuarterNote = Math.max ( 1, pulsesPerQuarterNote / MidiUtils.MIDI_CLOCK_PPQN ) * MidiUtils.MIDI_CLOCK_PPQN;
+		_noteOffScheduler = new NoteOffScheduler ( this, _pulsesPerQuarterNote * 4 );
 	}
 
 	@Override public final void onRemove ( )
 	{
-		_clockSource.dispose ( );
+		if ( _clockSource != null )
+		{
+			_clockSource.dispose ( );
+		}
 	}
 
 	/**
-	 * Called by TimerThread or MidiInClockSource on each PPQN pulse.
+	 * Called by TimerThread or MidiInClockSource on the pulses that need work.
+	 * Only the patterns at the front of the queue, the ones with a note on
+	 * this pulse, are visited. The pulses in between have no notes starting
+	 * or ending, so they are skipped. The clock wakes at least once per MIDI
+	 * clock tick, which is how quickly published changes are picked up.
+	 * 
+	 * Nothing is sent to the view from here. The view reads the pulse count
+	 * with getPulse() and draws the positions on its own timer.
+	 * @param pulseTime System.nanoTime() at which the pulse sounds, later than now if the clock renders ahead.
+	 * @param pulses Pulses since the previous call.
+	 * @return Pulses to the next pulse with a note starting or ending, one MIDI clock tick at most.
 	 */
-	public void onClock ( )
+	public int onClock ( long pulseTime, int pulses )
 	{
-		int n = _patterns.size ( );
+		synchronized ( _pulseLock )
+		{
+			/** End the notes that are due this pulse. */
+			long pulse = _pulse + pulses;
+			_pulseTime = pulseTime;
+			_pulse = pulse;
+			_noteOffScheduler.advance ( pulse );
+
+			/** Changes published since the previous call take effect here. */
+			int triggerDelay = _triggerDelay;
+			if ( _isPlaylistChanged || triggerDelay != _playedTriggerDelay )
+			{
+				updateQueue ( pulse, triggerDelay );
+			}
+
+			/** Play the patterns that have a note on this pulse. */
+			PatternVO patternVO = _queue.peek ( );
+			while ( patternVO != null && patternVO.nextHitPulse <= pulse )
+			{
+				PatternSnapshot snapshot = patternVO.playedSnapshot;
+				onPatternNoteStart ( snapshot, patternVO.nextHitStep );
+				findNextHit ( patternVO, snapshot, pulse + 1, triggerDelay );
+				_queue.updateFirst ( );
+				patternVO = _queue.peek ( );
+			}
+
+			int pulsesToNextEvent = _pulsesPerQuarterNote / MidiUtils.MIDI_CLOCK_PPQN;
+			if ( patternVO != null )
+			{
+				pulsesToNextEvent = ( int ) Math.min ( pulsesToNextEvent, patternVO.nextHitPulse - pulse );
+			}
+
+			/** All OSC messages of this pulse go out in one datagram. */
+			OscOutPort oscOutPort = _oscOutPort;
+			if ( oscOutPort != null )
+			{
+				oscOutPort.flush ( );
+			}
+
+			return _noteOffScheduler.getPulsesToNextDue ( pulsesToNextEvent );
+		}
+	}
+
+	/**
+	 * Apply the published snapshots and fill the queue with the patterns that
+	 * play. Only runs after a change, so its cost doesn't depend on the tempo
+	 * or resolution.
+	 * @param pulse Pulse the next notes are searched from.
+	 */
+	private void updateQueue ( long pulse, int triggerDelay )
+	{
+		_isPlaylistChanged = false;
+		_playedTriggerDelay = triggerDelay;
+		_queue.clear ( );
+
+		PatternVO [ ] playlist = _playlist;
+		int n = playlist.length;
 		while ( --n > -1 )
 		{
-			PatternVO patternVO = _patterns.get ( n );
+			PatternVO patternVO = playlist[ n ];
+			PatternSnapshot snapshot = patternVO.snapshot;
+			if ( snapshot != patternVO.playedSnapshot )
+			{
+				applySnapshot ( patternVO, snapshot, pulse );
+			}
 
-			if ( patternVO.isPlaying )
+			if ( snapshot.isPlaying )
 			{
-				/** Check if events take place this pulse. */
-				int patternPositionRotationCorrected = ( patternVO.position + ( patternVO.rotation * patternVO.stepLength ) ) % patternVO.patternLength;
-
-				/**
-				 * If patterns are triggered by incoming MIDI notes look at the
-				 * previous clock tick because a Note On or Off may have
-				 * happened since the last tick. This means the patterns play
-				 * with one clock tick delay. It's necessary because Note events
-				 * that happen on a given tick are sent AFTER the clock tick
-				 * event.
-				 */
-				if ( _isTriggeredByMidiNoteEnabled )
+				findNextHit ( patternVO, snapshot, pulse, triggerDelay );
+				if ( patternVO.nextHitPulse != -1 )
 				{
-					patternPositionRotationCorrected--;
-					if ( patternPositionRotationCorrected < 0 )
-					{
-						patternPositionRotationCorrected += patternVO.patternLength;
-					}
+					_queue.add ( patternVO );
 				}
+			}
+		}
+	}
 
-				int m = patternVO.events.size ( );
-				while ( --m > -1 )
-				{
-					MidiEvent midiEvent = patternVO.events.get ( m );
-					// if ( midiEvent.getTick ( ) ==
-					// patternPositionRotationCorrected && ( patternVO.solo || (
-					// !patternVO.mute && !patternVO.mutedBySolo ) ) )
-					if ( midiEvent.getTick ( ) == patternPositionRotationCorrected )
-					{
-						onPatternNoteStart ( patternVO, midiEvent );
-					}
-					else if ( midiEvent.getTick ( ) < patternPositionRotationCorrected )
-					{
-						break;
-					}
-				}
+	/**
+	 * Start playing from a newly published snapshot. The pattern keeps its
+	 * position, and a changed step length rescales the position so the pattern
+	 * keeps its place in the cycle. A new pattern starts at its set position.
+	 */
+	private void applySnapshot ( PatternVO patternVO, PatternSnapshot snapshot, long pulse )
+	{
+		PatternSnapshot playedSnapshot = patternVO.playedSnapshot;
+		int position = patternVO.position;
+		if ( playedSnapshot != null )
+		{
+			position = getPosition ( patternVO, playedSnapshot, pulse );
+			if ( playedSnapshot.stepLength != snapshot.stepLength )
+			{
+				position = ( int ) ( ( position / ( float ) playedSnapshot.patternLength ) * snapshot.patternLength );
 			}
+		}
 
-			/** Set position for pattern visual to update. */
-			_positionNotes[ n ].position = ( float ) patternVO.position / patternVO.patternLength;
+		patternVO.startPulse = pulse - ( position % snapshot.patternLength );
+		patternVO.playedSnapshot = snapshot;
+	}
 
-			/** Advance position in pattern. */
-			patternVO.position = ( patternVO.position + 1 ) % patternVO.patternLength;
+	/**
+	 * Find the pulse of the first note at or after a pulse, and the step that
+	 * plays on it. nextHitPulse is -1 if the pattern has no notes.
+	 * 
+	 * If patterns are triggered by incoming MIDI notes they play from the
+	 * position one MIDI clock tick earlier, because a Note On or Off may have
+	 * happened since the last tick. This means the patterns play with one
+	 * clock tick delay. It's necessary because Note events that happen on a
+	 * given tick are sent AFTER the clock tick event.
+	 * @param triggerDelay Pulses the pattern plays late.
+	 */
+	private void findNextHit ( PatternVO patternVO, PatternSnapshot snapshot, long fromPulse, int triggerDelay )
+	{
+		int patternLength = snapshot.patternLength;
+		int position = getPosition ( patternVO, snapshot, fromPulse );
+		int playedPosition = ( ( ( position - triggerDelay ) % patternLength ) + patternLength ) % patternLength;
+		int step = HitTable.nextHit ( snapshot.hitTable, ( playedPosition + snapshot.stepLength - 1 ) / snapshot.stepLength );
+		if ( step == -1 )
+		{
+			step = HitTable.nextHit ( snapshot.hitTable, 0 );
 		}
 
-		/** Check if it's time to update the screen. */
-		if ( new Date ( ).getTime ( ) >= _screenRedrawTime )
+		if ( step == -1 )
 		{
-			_screenRedrawTime += _screenRedrawInterval;
-			sendNotification ( SeqNotifications.REDRAW, _positionNotes );
+			patternVO.nextHitPulse = -1;
+			return;
 		}
+
+		int hitPosition = ( ( step * snapshot.stepLength ) + triggerDelay ) % patternLength;
+		int distance = ( ( hitPosition - position ) + patternLength ) % patternLength;
+		patternVO.nextHitStep = step;
+		patternVO.nextHitPulse = fromPulse + distance;
+	}
+
+	/**
+	 * Position of a pattern in PPQN on a pulse.
+	 */
+	private int getPosition ( PatternVO patternVO, PatternSnapshot snapshot, long pulse )
+	{
+		return ( int ) Math.floorMod ( pulse - patternVO.startPulse, ( long ) snapshot.patternLength );
 	}
 
 	/**
@@ -142,10 +255,11 @@ public class SequencerProxy extends Proxy implements ISequenceable
 	 */
 	public void onNoteOn ( ShortMessage message )
 	{
-		int n = _patterns.size ( );
+		PatternVO [ ] playlist = _playlist;
+		int n = playlist.length;
 		while ( --n > -1 )
 		{
-			PatternVO patternVO = _patterns.get ( n );
+			PatternVO patternVO = playlist[ n ];
 			if ( message.getChannel ( ) == patternVO.triggerMidiInChannel && message.getData1 ( ) == patternVO.triggerMidiInPitch )
 			{
 				patternVO.isTriggered = true;
@@ -160,10 +274,11 @@ public class SequencerProxy extends Proxy implements ISequenceable
 	 */
 	public void onNoteOff ( ShortMessage message )
 	{
-		int n = _patterns.size ( );
+		PatternVO [ ] playlist = _playlist;
+		int n = playlist.length;
 		while ( --n > -1 )
 		{
-			PatternVO patternVO = _patterns.get ( n );
+			PatternVO patternVO = playlist[ n ];
 			if ( message.getChannel ( ) == patternVO.triggerMidiInChannel && message.getData1 ( ) == patternVO.triggerMidiInPitch )
 			{
 				patternVO.isTriggered = false;
@@ -176,112 +291,94 @@ public class SequencerProxy extends Proxy implements ISequenceable
 	/**
 	 * View update notification: On | Off, pattern ID, time Dus: Welk patroon,
 	 * welke stap, wat voor soort event (on | off).
+	 * @param step Step index in the pattern, rotation applied, as the view draws it.
 	 */
-	public void onPatternNoteStart ( PatternVO patternVO, MidiEvent midiEvent )
+	public void onPatternNoteStart ( PatternSnapshot snapshot, int step )
 	{
-		ShortMessage message = ( ShortMessage ) midiEvent.getMessage ( );
-		NoteOffThread oldThread = _noteMatrix[ message.getChannel ( ) ][ message.getData1 ( ) ];
-		if ( oldThread != null && oldThread.isAlive ( ) )
-		{
-			/** Stop running threads for this channel and pitch. */
-			oldThread.interrupt ( );
+		int channel = snapshot.midiOutChannel;
+		int pitch = snapshot.midiOutPitch;
+		int velocity = snapshot.midiOutVelocity;
 
-			/** Send MIDI Note Off and pattern update notifications. */
-			onPatternNoteEnd ( oldThread.getPatternVO ( ), oldThread.getMidiEvent ( ) );
-		}
+		/** Schedule the Note Off. A note still playing on this channel and pitch is ended first. */
+		_noteOffScheduler.schedule ( snapshot, channel, pitch, velocity, step, snapshot.noteLength );
 
-		/** Start thread for this channel and pitch. */
-		long duration = ( long ) ( patternVO.noteLength * _millisPerPulse );
-		NoteOffThread noteOffThread = new NoteOffThread ( this, patternVO, midiEvent, duration );
-		_noteMatrix[ message.getChannel ( ) ][ message.getData1 ( ) ] = noteOffThread;
-		noteOffThread.start ( );
-
-		/** Send MIDI Note On notification. */
-		try
+		/** Send MIDI Note On. */
+		MidiOutPort midiOutPort = _midiOutPort;
+		if ( _isMidiOutEnabled && midiOutPort != null )
 		{
-			if ( _isMidiOutEnabled )
-			{
-				ShortMessage shortMessage = new ShortMessage ( );
-				shortMessage.setMessage ( ShortMessage.NOTE_ON, message.getChannel ( ), message.getData1 ( ), message.getData2 ( ) );
-				sendNotification ( SeqNotifications.SEND_MIDI_MESSAGE, shortMessage );
-			}
-		}
-		catch ( InvalidMidiDataException exception )
-		{
-			System.out.println ( "SequencerProxy.onNoteStart() exception - Invalid MIDI data: " + exception.getMessage ( ) );
+			midiOutPort.sendNoteOn ( channel, pitch, velocity, _pulseTime );
 		}
 
-		/** Send OSC Note On notification. */
-		if ( _isOscOutEnabled && patternVO.oscOutAddress != null && !patternVO.oscOutAddress.isEmpty ( ) )
+		/** Add OSC Note On to the bundle of this pulse. */
+		OscOutPort oscOutPort = _oscOutPort;
+		if ( _isOscOutEnabled && oscOutPort != null && snapshot.oscOutMessagePrefix != null )
 		{
-			OscMessage oscMessage = new OscMessage ( patternVO.oscOutAddress );
-			oscMessage.add ( 1 );
-			oscMessage.add ( message.getChannel ( ) );
-			oscMessage.add ( message.getData1 ( ) );
-			oscMessage.add ( message.getData2 ( ) );
-			sendNotification ( SeqNotifications.SEND_OSC_MESSAGE, oscMessage );
+			oscOutPort.add ( snapshot.oscOutMessagePrefix, 1, channel, pitch, velocity, _pulseTime );
 		}
 
-		/** Send view update notification. */
-		PatternSequenceNote note = new PatternSequenceNote ( ( int ) ( midiEvent.getTick ( ) / patternVO.stepLength ), ShortMessage.NOTE_ON, patternVO.id );
-		sendNotification ( SeqNotifications.PATTERN_SEQUENCE_UPDATED, note );
+		publishNote ( snapshot, ShortMessage.NOTE_ON, step );
 	}
 
 	/**
-	 * 
+	 * Called by the NoteOffScheduler on the pulse the note ends, or when
+	 * playback stops. In that case it ends at the last rendered pulse, so it
+	 * can't sound before a Note On that was sent ahead of time.
 	 */
-	public void onPatternNoteEnd ( PatternVO patternVO, MidiEvent midiEvent )
+	public void onPatternNoteEnd ( PatternSnapshot snapshot, int channel, int pitch, int velocity, int step )
 	{
-		ShortMessage message = ( ShortMessage ) midiEvent.getMessage ( );
-
-		/** Send MIDI Note Off notification. */
-		try
+		/** Send MIDI Note Off. */
+		MidiOutPort midiOutPort = _midiOutPort;
+		if ( _isMidiOutEnabled && midiOutPort != null )
 		{
-			if ( _isMidiOutEnabled )
-			{
-				ShortMessage shortMessage = new ShortMessage ( );
-				shortMessage.setMessage ( ShortMessage.NOTE_OFF, message.getChannel ( ), message.getData1 ( ), message.getData2 ( ) );
-				sendNotification ( SeqNotifications.SEND_MIDI_MESSAGE, shortMessage );
-			}
+			midiOutPort.sendNoteOff ( channel, pitch, velocity, _pulseTime );
 		}
-		catch ( InvalidMidiDataException exception )
+
+		/** Add OSC Note Off to the bundle of this pulse. */
+		OscOutPort oscOutPort = _oscOutPort;
+		if ( _isOscOutEnabled && oscOutPort != null && snapshot.oscOutMessagePrefix != null )
 		{
-			System.out.println ( "SequencerProxy.onNoteStart() exception - Invalid MIDI data: " + exception.getMessage ( ) );
+			oscOutPort.add ( snapshot.oscOutMessagePrefix, 0, channel, pitch, velocity, _pulseTime );
 		}
 
-		/** Send OSC Note Off notification. */
-		if ( _isOscOutEnabled && patternVO.oscOutAddress != null && !patternVO.oscOutAddress.isEmpty ( ) )
+		publishNote ( snapshot, ShortMessage.NOTE_OFF, step );
+	}
+
+	/**
+	 * Publish a note for the view, or pass it to the note listener if one is
+	 * set. The ring drops notes when the view falls behind, the listener
+	 * gets every note.
+	 */
+	private void publishNote ( PatternSnapshot snapshot, int midiStatus, int step )
+	{
+		INoteEventListener noteListener = _noteListener;
+		if ( noteListener != null )
 		{
-			OscMessage oscMessage = new OscMessage ( patternVO.oscOutAddress );
-			oscMessage.add ( 0 );
-			oscMessage.add ( message.getChannel ( ) );
-			oscMessage.add ( message.getData1 ( ) );
-			oscMessage.add ( message.getData2 ( ) );
-			sendNotification ( SeqNotifications.SEND_OSC_MESSAGE, oscMessage );
+			noteListener.noteEventHandler ( snapshot.id, midiStatus, step );
+		}
+		else
+		{
+			_noteEvents.publish ( snapshot.id, midiStatus, step );
 		}
-
-		/** Send view update notification. */
-		PatternSequenceNote note = new PatternSequenceNote ( ( int ) ( midiEvent.getTick ( ) / patternVO.stepLength ), ShortMessage.NOTE_OFF, patternVO.id );
-		sendNotification ( SeqNotifications.PATTERN_SEQUENCE_UPDATED, note );
 	}
 
 	/**
-	 * songPosition: MIDI song position in 16th notes.
+	 * songPosition: MIDI song position in 16th notes. All patterns are at
+	 * that position on the next pulse.
 	 */
 	public void onSongPosition ( int songPosition )
 	{
-		int positionInPulses = songPosition * ( PULSES_PER_QUARTER_NOTE / 4 );
-		int n = _patterns.size ( );
+		int positionInPulses = songPosition * ( _pulsesPerQuarterNote / 4 );
+		long pulse = _pulse + 1;
+		PatternVO [ ] playlist = _playlist;
+		int n = playlist.length;
 		while ( --n > -1 )
 		{
-			PatternVO patternVO = _patterns.get ( n );
-			/** Set the new position of the pattern. */
-			// patternVO.position = ( positionInPulses + ( patternVO.rotation * patternVO.stepLength ) ) % patternVO.patternLength;
-			patternVO.position = positionInPulses % patternVO.patternLength;
-			/** Get position for pattern visual to update. */
-			_positionNotes[ n ].position = ( float ) patternVO.position / patternVO.patternLength;
+			PatternVO patternVO = playlist[ n ];
+			PatternSnapshot snapshot = patternVO.snapshot;
+			patternVO.playedSnapshot = snapshot;
+			patternVO.startPulse = pulse - ( positionInPulses % snapshot.patternLength );
 		}
-		sendNotification ( SeqNotifications.REDRAW, _positionNotes );
+		updateQueue ( pulse, _triggerDelay );
 	}
 
 	public void start ( )
@@ -289,9 +386,31 @@ public class SequencerProxy extends Proxy implements ISequenceable
 		_clockSource.startClock ( );
 	}
 
+	/**
+	 * Stop the clock and end the notes that play. A sequencer without clock
+	 * source, like the one an OfflineRenderer drives, only ends its notes.
+	 * 
+	 * stopClock() returns once the pulse the clock is rendering has finished,
+	 * so no note starts after the notes are ended. A clock that keeps running,
+	 * like MIDI clock in, waits for the lock until the notes are ended.
+	 */
 	public void stop ( )
 	{
-		_clockSource.stopClock ( );
+		if ( _clockSource != null )
+		{
+			_clockSource.stopClock ( );
+		}
+
+		synchronized ( _pulseLock )
+		{
+			_noteOffScheduler.flush ( );
+
+			OscOutPort oscOutPort = _oscOutPort;
+			if ( oscOutPort != null )
+			{
+				oscOutPort.flush ( );
+			}
+		}
 	}
 
 	/**
@@ -312,7 +431,7 @@ public class SequencerProxy extends Proxy implements ISequenceable
 			sendNotification ( SeqNotifications.PATTERN_DELETED, removedPatternVO );
 		}
 
-		_screenRedrawTime = new Date ( ).getTime ( );
+		updatePlaylist ( );
 	}
 
 	public void updateClockSource ( IClockSource clockSource )
@@ -323,6 +442,7 @@ public class SequencerProxy extends Proxy implements ISequenceable
 		}
 
 		_clockSource = clockSource;
+		_clockSource.setLookahead ( _lookahead * 1000000l );
 	}
 
 	public void setClockSourceType ( ClockSourceType clockSourceType )
@@ -340,6 +460,27 @@ public class SequencerProxy extends Proxy implements ISequenceable
 		return _patterns;
 	}
 
+	/**
+	 * Publish the patterns to the clock thread. Must be called after patterns
+	 * are added to or removed from getPatterns(), and only once every pattern
+	 * has a snapshot.
+	 */
+	public void updatePlaylist ( )
+	{
+		_playlist = _patterns.toArray ( new PatternVO[ _patterns.size ( ) ] );
+		_isPlaylistChanged = true;
+	}
+
+	/**
+	 * Build the settings the sequencer plays from a pattern's current
+	 * settings. Call after every change to the pattern.
+	 */
+	public void publishSnapshot ( PatternVO patternVO )
+	{
+		patternVO.snapshot = new PatternSnapshot ( patternVO, _pulsesPerQuarterNote );
+		_isPlaylistChanged = true;
+	}
+
 	public void setSelectedPattern ( PatternVO patternVO )
 	{
 		int n = _patterns.size ( );
@@ -374,18 +515,48 @@ public class SequencerProxy extends Proxy implements ISequenceable
 	public void setTempo ( float bpm )
 	{
 		_beatsPerMinute = bpm;
-		_millisPerPulse = new Double ( 1000 / ( PULSES_PER_QUARTER_NOTE * ( _beatsPerMinute / 60 ) ) ).floatValue ( );
-		_clockSource.setTempoInBPM ( _beatsPerMinute, PULSES_PER_QUARTER_NOTE );
+
+		if ( _clockSource != null )
+		{
+			_clockSource.setTempoInBPM ( _beatsPerMinute, _pulsesPerQuarterNote );
+		}
 	}
 
+	/**
+	 * Tempo set for the internal clock, or the tempo estimated from the
+	 * incoming clock when synced to MIDI clock.
+	 */
 	public float getBPM ( )
 	{
+		if ( _clockSourceType == ClockSourceType.MIDI_CLOCK_IN && _clockSource != null && _clockSource.getBPM ( ) > 0 )
+		{
+			return _clockSource.getBPM ( );
+		}
+
 		return _beatsPerMinute;
 	}
 
 	public int getPulsesPerQuarterNote ( )
 	{
-		return PULSES_PER_QUARTER_NOTE;
+		return _pulsesPerQuarterNote;
+	}
+
+	/**
+	 * @param lookahead Milliseconds the clock renders each pulse before it sounds. 0 renders on time.
+	 */
+	public void setLookahead ( int lookahead )
+	{
+		_lookahead = lookahead;
+
+		if ( _clockSource != null )
+		{
+			_clockSource.setLookahead ( _lookahead * 1000000l );
+		}
+	}
+
+	public int getLookahead ( )
+	{
+		return _lookahead;
 	}
 
 	public int getPulsesSinceStart ( )
@@ -393,14 +564,39 @@ public class SequencerProxy extends Proxy implements ISequenceable
 		return _clockSource.getPulsesSinceStart ( );
 	}
 
-	public float getMillisPerPulse ( )
+	/**
+	 * Pulse count of the last rendered pulse, published for the view to
+	 * draw the pattern positions from.
+	 */
+	public long getPulse ( )
+	{
+		return _pulse;
+	}
+
+	/**
+	 * Notes played by the clock thread, drained by the view each frame.
+	 */
+	public NoteEventRing getNoteEvents ( )
 	{
-		return _millisPerPulse;
+		return _noteEvents;
 	}
 
-	public void setPositionNotes ( PatternPositionNote [ ] positionNotes )
+	/**
+	 * Get every played note directly on the clock thread instead of through
+	 * the ring. Used where no note may be lost, like rendering offline.
+	 * @param noteListener Listener, or null to publish to the ring again.
+	 */
+	public void setNoteListener ( INoteEventListener noteListener )
 	{
-		_positionNotes = positionNotes;
+		_noteListener = noteListener;
+	}
+
+	/**
+	 * Output for MIDI notes, bound when a MIDI Out device is opened.
+	 */
+	public void setMidiOutPort ( MidiOutPort midiOutPort )
+	{
+		_midiOutPort = midiOutPort;
 	}
 
 	public boolean getMidiOutEnabled ( )
@@ -413,6 +609,14 @@ public class SequencerProxy extends Proxy implements ISequenceable
 		_isMidiOutEnabled = isMidiOutEnabled;
 	}
 
+	/**
+	 * Output for OSC messages, bound when the OSC Out port is set.
+	 */
+	public void setOscOutPort ( OscOutPort oscOutPort )
+	{
+		_oscOutPort = oscOutPort;
+	}
+
 	public boolean getOscOutEnabled ( )
 	{
 		return _isOscOutEnabled;
@@ -431,6 +635,7 @@ public class SequencerProxy extends Proxy implements ISequenceable
 	public void setTriggeredByMidiNoteEnabled ( MidiInNoteSource midiInNoteSource )
 	{
 		_isTriggeredByMidiNoteEnabled = midiInNoteSource != null;
+		_triggerDelay = _isTriggeredByMidiNoteEnabled ? _pulsesPerQuarterNote / MidiUtils.MIDI_CLOCK_PPQN : 0;
 
 		if ( _midiInNoteSource != null )
 		{
@@ -18,20 +18,24 @@
  * see <http://www.gnu.org/licenses/>.
  */
 
-package com.hisschemoller.epg.notification.note;
+package com.hisschemoller.epg.model.data;
 
-import java.util.UUID;
-
-public class PatternSequenceNote
+/**
+ * Settings from the command line for a headless run. Fields left null use
+ * the stored preferences.
+ */
+public class HeadlessSettingsVO
 {
-	public UUID patternID;
-	public int stepIndex;
-	public int midiStatus;
+	public String projectPath;
+	public String midiInDevice;
+	public String midiOutDevice;
+	public Integer oscOutPort;
+	public String oscRoutes;
+
+	/** Render the project to this MIDI file instead of playing it. */
+	public String renderPath;
+	public Integer renderBars;
 
-	public PatternSequenceNote ( int stepIndex, int midiStatus, UUID patternID )
-	{
-		this.patternID = patternID;
-		this.stepIndex = stepIndex;
-		this.midiStatus = midiStatus;
-	}
-}
\ No newline at end of file
+	/** Save the project to this file instead of playing it, binary if it has the binary extension. */
+	public String savePath;
+}
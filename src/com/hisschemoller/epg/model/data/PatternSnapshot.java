@@ -0,0 +1,78 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.model.data;
+
+import java.util.UUID;
+
+import com.hisschemoller.epg.util.HitTable;
+import com.hisschemoller.epg.util.MidiUtils;
+import com.hisschemoller.epg.util.OscOutPort;
+
+/**
+ * Immutable copy of the pattern settings the sequencer plays from. Commands
+ * change the PatternVO on the UI thread and then publish a new snapshot with a
+ * single reference assignment, so the clock thread always reads a complete
+ * and consistent set of values and never needs a lock.
+ */
+public final class PatternSnapshot
+{
+	public final UUID id;
+
+	/** Steps that play a note, rotation applied. Built by HitTable.compile(). */
+	public final long [ ] hitTable;
+
+	/** Length in PPQN. */
+	public final int stepLength;
+	public final int patternLength;
+	public final int steps;
+
+	/** MIDI Out settings */
+	public final int midiOutChannel;
+	public final int midiOutPitch;
+	public final int midiOutVelocity;
+
+	/** Note length in sequencer pulses. PatternVO keeps it in MIDI clock pulses, as shown and saved. */
+	public final int noteLength;
+
+	/** OSC address and type tags, encoded once by OscOutPort. null if the pattern sends no OSC. Not to be modified. */
+	public final byte [ ] oscOutMessagePrefix;
+
+	/** True if the pattern plays and generates notes. */
+	public final boolean isPlaying;
+
+	/**
+	 * @param pulsesPerQuarterNote Sequencer resolution.
+	 */
+	public PatternSnapshot ( PatternVO patternVO, int pulsesPerQuarterNote )
+	{
+		id = patternVO.id;
+		hitTable = HitTable.compile ( patternVO );
+		stepLength = patternVO.stepLength;
+		patternLength = patternVO.patternLength;
+		steps = patternVO.steps;
+		midiOutChannel = patternVO.midiOutChannel;
+		midiOutPitch = patternVO.midiOutPitch;
+		midiOutVelocity = patternVO.midiOutVelocity;
+		noteLength = patternVO.noteLength * ( pulsesPerQuarterNote / MidiUtils.MIDI_CLOCK_PPQN );
+		oscOutMessagePrefix = ( patternVO.oscOutAddress != null && !patternVO.oscOutAddress.isEmpty ( ) ) ? OscOutPort.getMessagePrefix ( patternVO.oscOutAddress ) : null;
+		isPlaying = patternVO.isPlaying;
+	}
+}
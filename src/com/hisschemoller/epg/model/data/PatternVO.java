@@ -20,24 +20,35 @@
 
 package com.hisschemoller.epg.model.data;
 
-import java.util.ArrayList;
 import java.util.UUID;
 
-import javax.sound.midi.MidiEvent;
-
 import com.hisschemoller.epg.model.data.EPGEnums.PatternState;
 
 public class PatternVO
 {
 	public UUID id;
-	public ArrayList<MidiEvent> events = new ArrayList<MidiEvent> ( );
 
-	/** quantization, length and position in PPQN. */
+	/** quantization and length in PPQN. */
 	public int quantization;
 	public int stepLength;
 	public int patternLength;
+
+	/** Settings the sequencer plays, published after every change. */
+	public volatile PatternSnapshot snapshot;
+
+	/** Position in PPQN the pattern starts from when it's added to the sequencer. */
 	public int position;
 
+	/**
+	 * Sequencer state, only changed by the clock thread. The position on any
+	 * pulse is ( pulse - startPulse ) modulo the pattern length. The played
+	 * snapshot and start pulse are also read by the view to draw the position.
+	 */
+	public volatile PatternSnapshot playedSnapshot;
+	public volatile long startPulse;
+	public long nextHitPulse;
+	public int nextHitStep;
+
 	/** Pattern settings */
 	public int steps;
 	public int fills;
@@ -23,20 +23,20 @@ package com.hisschemoller.epg.notification;
 import org.puremvc.java.multicore.patterns.facade.Facade;
 
 import com.hisschemoller.epg.controller.ChangePlaybackCommand;
+import com.hisschemoller.epg.controller.HeadlessStartupCommand;
 import com.hisschemoller.epg.controller.OpenPatternSettingsCommand;
 import com.hisschemoller.epg.controller.StartupCommand;
 import com.hisschemoller.epg.controller.UpdateClockSourceCommand;
-import com.hisschemoller.epg.controller.UpdatePositionNotesCommand;
+import com.hisschemoller.epg.controller.UpdateLookaheadCommand;
 import com.hisschemoller.epg.controller.UpdateTempoCommand;
 import com.hisschemoller.epg.controller.UpdateTriggerByNoteCommand;
 import com.hisschemoller.epg.controller.midi.EnableMidiCommand;
 import com.hisschemoller.epg.controller.midi.OpenMidiDeviceCommand;
 import com.hisschemoller.epg.controller.midi.SendMidiAllNotesOffCommand;
-import com.hisschemoller.epg.controller.midi.SendMidiMessageCommand;
 import com.hisschemoller.epg.controller.midi.UpdateMidiDevicesCommand;
 import com.hisschemoller.epg.controller.osc.EnableOscCommand;
-import com.hisschemoller.epg.controller.osc.SendOscMessageCommand;
 import com.hisschemoller.epg.controller.osc.UpdateOscPortCommand;
+import com.hisschemoller.epg.controller.osc.UpdateOscRoutesCommand;
 import com.hisschemoller.epg.controller.pattern.CreatePatternCommand;
 import com.hisschemoller.epg.controller.pattern.DeletePatternCommand;
 import com.hisschemoller.epg.controller.pattern.UpdateMidiInSettingsCommand;
@@ -50,9 +50,11 @@ import com.hisschemoller.epg.controller.pattern.UpdatePatternPointerCommand;
 import com.hisschemoller.epg.controller.pattern.UpdatePatternQuantizationCommand;
 import com.hisschemoller.epg.controller.pattern.UpdatePatternSettingsCommand;
 import com.hisschemoller.epg.controller.preferences.EnableReloadLastProjectCommand;
+import com.hisschemoller.epg.controller.preferences.EnableSingleSurfaceCanvasCommand;
 import com.hisschemoller.epg.controller.preferences.SyncToMidiClockEnabledCommand;
 import com.hisschemoller.epg.controller.preferences.DisplayMidiNoteNamesCommand;
 import com.hisschemoller.epg.controller.project.ChooseProjectCommand;
+import com.hisschemoller.epg.controller.project.ExportMidiFileCommand;
 import com.hisschemoller.epg.controller.project.NewProjectCommand;
 import com.hisschemoller.epg.controller.project.OpenProjectCommand;
 import com.hisschemoller.epg.controller.project.SaveProjectCommand;
@@ -64,6 +66,7 @@ import com.hisschemoller.epg.controller.window.ShowPreferencesCommand;
 public class SeqNotifications
 {
 	public static final String STARTUP = "SeqNotifications.STARTUP";
+	public static final String STARTUP_HEADLESS = "SeqNotifications.STARTUP_HEADLESS";
 
 	public static final String UPDATE_CLOCK_SOURCE = "SeqNotifications.UPDATE_CLOCK_SOURCE";
 	public static final String CLOCK_SOURCE_UPDATED = "SeqNotifications.CLOCK_SOURCE_UPDATED";
@@ -71,8 +74,6 @@ public class SeqNotifications
 	public static final String UPDATE_TRIGGER_BY_NOTE = "SeqNotifications.UPDATE_TRIGGER_BY_NOTE";
 	public static final String TRIGGER_BY_NOTE_UPDATED = "SeqNotifications.TRIGGER_BY_NOTE_UPDATED";
 
-	public static final String UPDATE_POSITION_NOTES = "SeqNotifications.UPDATE_POSITION_NOTES";
-
 	public static final String CREATE_PATTERN = "SeqNotifications.CREATE_PATTERN";
 	public static final String PATTERN_CREATED = "SeqNotifications.PATTERN_CREATED";
 
@@ -84,8 +85,6 @@ public class SeqNotifications
 
 	public static final String UPDATE_PATTERN_IS_PLAYING = "SeqNotifications.UPDATE_PATTERN_IS_PLAYING";
 
-	public static final String PATTERN_SEQUENCE_UPDATED = "SeqNotifications.PATTERN_SEQUENCE_UPDATED";
-
 	public static final String DELETE_PATTERN = "SeqNotifications.DELETE_PATTERN";
 	public static final String PATTERN_DELETED = "SeqNotifications.PATTERN_DELETED";
 
@@ -127,10 +126,6 @@ public class SeqNotifications
 	public static final String OPEN_MIDI_OUT_DEVICE = "SeqNotifications.OPEN_MIDI_OUT_DEVICE";
 	public static final String MIDI_OUT_DEVICE_OPENED = "SeqNotifications.MIDI_OUT_DEVICE_OPENED";
 
-	public static final String SEND_MIDI_MESSAGE = "SeqNotifications.SEND_MIDI_MESSAGE";
-
-	public static final String SEND_OSC_MESSAGE = "SeqNotifications.SEND_OSC_MESSAGE";
-
 	public static final String SEND_MIDI_ALL_NOTES_OFF = "SeqNotifications.SEND_MIDI_ALL_NOTES_OFF";
 
 	public static final String ENABLE_MIDI_IN_DEVICE = "SeqNotifications.ENABLE_MIDI_IN_DEVICE";
@@ -144,6 +139,8 @@ public class SeqNotifications
 
 	public static final String UPDATE_OSC_OUT_PORT = "SeqNotifications.UPDATE_OSC_OUT_PORT";
 	public static final String OSC_OUT_PORT_UPDATED = "SeqNotifications.OSC_OUT_PORT_UPDATED";
+	public static final String UPDATE_OSC_ROUTES = "SeqNotifications.UPDATE_OSC_ROUTES";
+	public static final String OSC_ROUTES_UPDATED = "SeqNotifications.OSC_ROUTES_UPDATED";
 
 	public static final String STARTUP_PROJECT = "SeqNotifications.STARTUP_PROJECT";
 
@@ -157,9 +154,13 @@ public class SeqNotifications
 	
 	public static final String SAVE_PROJECT_AS = "SeqNotifications.SAVE_PROJECT_AS";
 
+	public static final String EXPORT_MIDI_FILE = "SeqNotifications.EXPORT_MIDI_FILE";
+
 	public static final String UPDATE_TEMPO = "SeqNotifications.UPDATE_TEMPO";
 	public static final String TEMPO_UPDATED = "SeqNotifications.TEMPO_UPDATED";
 
+	public static final String UPDATE_LOOKAHEAD = "SeqNotifications.UPDATE_LOOKAHEAD";
+
 	public static final String CHANGE_PLAYBACK = "SeqNotifications.CHANGE_PLAYBACK";
 	public static final String PLAYBACK_CHANGED = "SeqNotifications.PLAYBACK_CHANGED";
 
@@ -179,21 +180,21 @@ public class SeqNotifications
 	public static final String ENABLE_RELOAD_LAST_PROJECT = "SeqNotifications.ENABLE_RELOAD_LAST_PROJECT";
 	public static final String RELOAD_LAST_PROJECT_ENABLED = "SeqNotifications.RELOAD_LAST_PROJECT_ENABLED";
 
-	public static final String PROJECT_FILE_UPDATED = "SeqNotifications.PROJECT_FILE_UPDATED";
+	public static final String ENABLE_SINGLE_SURFACE_CANVAS = "SeqNotifications.ENABLE_SINGLE_SURFACE_CANVAS";
+	public static final String SINGLE_SURFACE_CANVAS_ENABLED = "SeqNotifications.SINGLE_SURFACE_CANVAS_ENABLED";
 
-	public static final String REDRAW = "SeqNotifications.REDRAW";
+	public static final String PROJECT_FILE_UPDATED = "SeqNotifications.PROJECT_FILE_UPDATED";
+	public static final String PROJECT_LOAD_PROGRESS = "SeqNotifications.PROJECT_LOAD_PROGRESS";
 
 	public static final void registerCommands ( Facade facade )
 	{
 		facade.registerCommand ( STARTUP, new StartupCommand ( ) );
+		facade.registerCommand ( STARTUP_HEADLESS, new HeadlessStartupCommand ( ) );
 		facade.registerCommand ( UPDATE_CLOCK_SOURCE, new UpdateClockSourceCommand ( ) );
 		facade.registerCommand ( UPDATE_TRIGGER_BY_NOTE, new UpdateTriggerByNoteCommand ( ) );
-		facade.registerCommand ( UPDATE_POSITION_NOTES, new UpdatePositionNotesCommand ( ) );
 		facade.registerCommand ( UPDATE_MIDI_DEVICES, new UpdateMidiDevicesCommand ( ) );
 		facade.registerCommand ( OPEN_MIDI_IN_DEVICE, new OpenMidiDeviceCommand ( ) );
 		facade.registerCommand ( OPEN_MIDI_OUT_DEVICE, new OpenMidiDeviceCommand ( ) );
-		facade.registerCommand ( SEND_MIDI_MESSAGE, new SendMidiMessageCommand ( ) );
-		facade.registerCommand ( SEND_OSC_MESSAGE, new SendOscMessageCommand ( ) );
 		facade.registerCommand ( UPDATE_MIDI_OUT_SETTINGS, new UpdateMidiOutSettingsCommand ( ) );
 		facade.registerCommand ( UPDATE_MIDI_IN_SETTINGS, new UpdateMidiInSettingsCommand ( ) );
 		facade.registerCommand ( UPDATE_OSC_SETTINGS, new UpdateOscSettingsCommand ( ) );
@@ -202,6 +203,7 @@ public class SeqNotifications
 		facade.registerCommand ( ENABLE_MIDI_OUT_DEVICE, new EnableMidiCommand ( ) );
 		facade.registerCommand ( ENABLE_OSC_OUT_DEVICE, new EnableOscCommand ( ) );
 		facade.registerCommand ( UPDATE_OSC_OUT_PORT, new UpdateOscPortCommand ( ) );
+		facade.registerCommand ( UPDATE_OSC_ROUTES, new UpdateOscRoutesCommand ( ) );
 		facade.registerCommand ( UPDATE_PATTERN_SETTINGS, new UpdatePatternSettingsCommand ( ) );
 		facade.registerCommand ( UPDATE_PATTERN_NAME, new UpdatePatternNameCommand ( ) );
 		facade.registerCommand ( UPDATE_PATTERN_LOCATION, new UpdatePatternLocationCommand ( ) );
@@ -213,6 +215,7 @@ public class SeqNotifications
 		facade.registerCommand ( SOLO_PATTERN, new UpdateOtherSettingsCommand ( ) );
 		facade.registerCommand ( UPDATE_PATTERN_QUANTIZATION, new UpdatePatternQuantizationCommand ( ) );
 		facade.registerCommand ( UPDATE_TEMPO, new UpdateTempoCommand ( ) );
+		facade.registerCommand ( UPDATE_LOOKAHEAD, new UpdateLookaheadCommand ( ) );
 		facade.registerCommand ( CHANGE_PLAYBACK, new ChangePlaybackCommand ( ) );
 		facade.registerCommand ( OPEN_PATTERN_SETTINGS, new OpenPatternSettingsCommand ( ) );
 		facade.registerCommand ( STARTUP_PROJECT, new StartupProjectCommand ( ) );
@@ -221,11 +224,13 @@ public class SeqNotifications
 		facade.registerCommand ( OPEN_PROJECT, new OpenProjectCommand ( ) );
 		facade.registerCommand ( SAVE_PROJECT, new SaveProjectCommand ( ) );
 		facade.registerCommand ( SAVE_PROJECT_AS, new SaveProjectCommand ( ) );
+		facade.registerCommand ( EXPORT_MIDI_FILE, new ExportMidiFileCommand ( ) );
 		facade.registerCommand ( SHOW_HELP, new ShowHelpCommand ( ) );
 		facade.registerCommand ( SHOW_PREFERENCES, new ShowPreferencesCommand ( ) );
 		facade.registerCommand ( HIDE_PREFERENCES, new HidePreferencesCommand ( ) );
 		facade.registerCommand ( UPDATE_SYNC_TO_MIDI_IN_ENABLED, new SyncToMidiClockEnabledCommand ( ) );
 		facade.registerCommand ( ENABLE_DISPLAY_MIDI_NOTE_NAMES, new DisplayMidiNoteNamesCommand ( ) );
 		facade.registerCommand ( ENABLE_RELOAD_LAST_PROJECT, new EnableReloadLastProjectCommand ( ) );
+		facade.registerCommand ( ENABLE_SINGLE_SURFACE_CANVAS, new EnableSingleSurfaceCanvasCommand ( ) );
 	}
 }
@@ -1,5 +1,7 @@
 package com.hisschemoller.epg.util;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.prefs.Preferences;
 
 public class EPGPreferences
@@ -17,39 +19,92 @@ public class EPGPreferences
 	public static final String TRIGGERED_BY_MIDI_NOTE = "triggeredByMidiNote";
 	public static final String DISPLAY_MIDI_NOTE_NAMES = "displayMidiNoteNames";
 	public static final String RELOAD_LAST_OPENED_PROJECT = "reloadLastOpenedProject";
+	public static final String SINGLE_SURFACE_CANVAS = "singleSurfaceCanvas";
 	public static final String LAST_OPENED_PROJECT = "lastOpenedProject";
 	public static final String OSC_OUT_ENABLED = "oscOutEnabled";
 	public static final String OSC_OUT_PORT = "oscOutPort";
+	public static final String OSC_ROUTES = "oscRoutes";
+	public static final String LOOKAHEAD = "lookahead";
+	public static final String PULSES_PER_QUARTER_NOTE = "pulsesPerQuarterNote";
 	private static final String PREFERENCES = "preferences";
 	private static Preferences _preferences = Preferences.userRoot ( ).node ( PREFERENCES );
 	
+	/** Values set while saving is off, they only last for this run. */
+	private static Map < String, String > _runValues = new ConcurrentHashMap < String, String > ( );
+	private static boolean _isSaving = true;
+	
+	/**
+	 * Stop or resume saving values to the stored preferences. While saving
+	 * is off new values are still read back, but they're lost on exit.
+	 */
+	public static void setSaving ( boolean isSaving )
+	{
+		_isSaving = isSaving;
+	}
+	
 	public static void putInt ( String key, int value )
 	{
-		_preferences.putInt ( key, value );
+		if ( _isSaving )
+		{
+			_preferences.putInt ( key, value );
+		}
+		else
+		{
+			_runValues.put ( key, Integer.toString ( value ) );
+		}
 	}
 	
 	public static int getInt ( String key, int defaultValue )
 	{
+		String value = _runValues.get ( key );
+		if ( value != null )
+		{
+			return Integer.parseInt ( value );
+		}
 		return _preferences.getInt ( key, defaultValue );
 	}
 	
 	public static void putBoolean ( String key, boolean value )
 	{
-		_preferences.putBoolean ( key, value );
+		if ( _isSaving )
+		{
+			_preferences.putBoolean ( key, value );
+		}
+		else
+		{
+			_runValues.put ( key, Boolean.toString ( value ) );
+		}
 	}
 	
 	public static boolean getBoolean ( String key, boolean defaultValue )
 	{
+		String value = _runValues.get ( key );
+		if ( value != null )
+		{
+			return Boolean.parseBoolean ( value );
+		}
 		return _preferences.getBoolean ( key, defaultValue );
 	}
 	
 	public static void put ( String key, String value )
 	{
-		_preferences.put ( key, value );
+		if ( _isSaving )
+		{
+			_preferences.put ( key, value );
+		}
+		else
+		{
+			_runValues.put ( key, value );
+		}
 	}
 	
 	public static String get ( String key, String defaultValue )
 	{
+		String value = _runValues.get ( key );
+		if ( value != null )
+		{
+			return value;
+		}
 		return _preferences.get ( key, defaultValue );
 	}
 }
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Euclidean rhythm generator that works on bits instead of lists of Booleans.
+ * A pattern is a bitmask with one bit per step, bit n of word n / 64 set if
+ * step n plays a note, the same layout as a HitTable.
+ * 
+ * It's the same Bjorklund algorithm as BjorklundGenerator3 and produces the
+ * same patterns. At every stage of that algorithm the distribution holds
+ * copies of one group and the remainder copies of another, so only the two
+ * groups and their counts are kept.
+ * 
+ * Patterns are cached by steps and fills. The returned arrays are shared and
+ * must not be modified.
+ */
+public class EuclideanGenerator
+{
+	private static ConcurrentHashMap < Integer, long [ ] > _cache = new ConcurrentHashMap < Integer, long [ ] > ( );
+
+	/**
+	 * @param steps Pattern length in steps.
+	 * @param fills Steps that play a note.
+	 * @return Bitmask of ( steps + 63 ) / 64 words.
+	 */
+	public static long [ ] generate ( int steps, int fills )
+	{
+		Integer key = ( steps << 16 ) | ( fills & 0xffff );
+		long [ ] pattern = _cache.get ( key );
+		if ( pattern == null )
+		{
+			pattern = bjorklund ( steps, fills );
+			_cache.putIfAbsent ( key, pattern );
+		}
+		return pattern;
+	}
+
+	/**
+	 * True if a step plays a note.
+	 */
+	public static boolean isHit ( long [ ] pattern, int step )
+	{
+		return ( pattern[ step >> 6 ] & ( 1l << step ) ) != 0;
+	}
+
+	/**
+	 * Rotate a pattern to the left: the step at the rotation becomes the
+	 * first step, like the pattern rotation setting does.
+	 * @return New bitmask.
+	 */
+	public static long [ ] rotate ( long [ ] pattern, int steps, int rotation )
+	{
+		long [ ] rotated = new long[ pattern.length ];
+		if ( steps == 0 )
+		{
+			return rotated;
+		}
+
+		rotation = ( ( rotation % steps ) + steps ) % steps;
+		if ( steps <= 64 )
+		{
+			rotated[ 0 ] = EuclideanTable.rotate ( pattern[ 0 ], steps, rotation );
+			return rotated;
+		}
+
+		for ( int i = 0; i < steps; i++ )
+		{
+			if ( isHit ( pattern, i ) )
+			{
+				int step = ( i - rotation + steps ) % steps;
+				rotated[ step >> 6 ] |= 1l << step;
+			}
+		}
+		return rotated;
+	}
+
+	/**
+	 * Run the algorithm, without the cache. EuclideanTable builds from it.
+	 */
+	static long [ ] bjorklund ( int steps, int fills )
+	{
+		long [ ] pattern = new long[ ( steps + 63 ) >> 6 ];
+		if ( steps <= 0 || fills <= 0 )
+		{
+			return pattern;
+		}
+
+		if ( fills >= steps )
+		{
+			for ( int i = 0; i < steps; i++ )
+			{
+				pattern[ i >> 6 ] |= 1l << i;
+			}
+			return pattern;
+		}
+
+		/** Distribution: groups that start with a note. Remainder: the groups appended to them. */
+		long [ ] group = new long[ pattern.length ];
+		long [ ] remainderGroup = new long[ pattern.length ];
+		long [ ] newGroup = new long[ pattern.length ];
+		group[ 0 ] = 1;
+		int groupLength = 1;
+		int groupCount = fills;
+		int remainderLength = 1;
+		int remainderCount = steps - fills;
+
+		while ( remainderCount > 1 )
+		{
+			/** Every group gets the same number of remainder groups, the first ones one more. */
+			int fullRounds = remainderCount / groupCount;
+			int remainder = remainderCount % groupCount;
+
+			int length = append ( newGroup, 0, group, 0, groupLength );
+			for ( int i = 0; i < fullRounds; i++ )
+			{
+				length = append ( newGroup, length, remainderGroup, 0, remainderLength );
+			}
+
+			if ( remainder == 0 )
+			{
+				long [ ] swap = group;
+				group = newGroup;
+				newGroup = swap;
+				groupLength = length;
+				remainderCount = 0;
+			}
+			else
+			{
+				/** The groups that got one more become the distribution, the others the remainder. */
+				append ( group, 0, newGroup, 0, length );
+				groupLength = append ( group, length, remainderGroup, 0, remainderLength );
+				long [ ] swap = remainderGroup;
+				remainderGroup = newGroup;
+				newGroup = swap;
+				remainderLength = length;
+				remainderCount = groupCount - remainder;
+				groupCount = remainder;
+			}
+		}
+
+		int length = 0;
+		for ( int i = 0; i < groupCount; i++ )
+		{
+			length = append ( pattern, length, group, 0, groupLength );
+		}
+		for ( int i = 0; i < remainderCount; i++ )
+		{
+			length = append ( pattern, length, remainderGroup, 0, remainderLength );
+		}
+		return pattern;
+	}
+
+	/**
+	 * Copy bits from one bitmask to the end of another.
+	 * @return Length of the destination after the copy.
+	 */
+	private static int append ( long [ ] destination, int destinationLength, long [ ] source, int sourceIndex, int length )
+	{
+		for ( int i = 0; i < length; i++ )
+		{
+			int from = sourceIndex + i;
+			int to = destinationLength + i;
+			if ( ( source[ from >> 6 ] & ( 1l << from ) ) != 0 )
+			{
+				destination[ to >> 6 ] |= 1l << to;
+			}
+			else
+			{
+				destination[ to >> 6 ] &= ~( 1l << to );
+			}
+		}
+		return destinationLength + length;
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+/**
+ * Every Euclidean pattern the pattern settings allow, up to MAXIMUM_STEPS
+ * steps, as a single word bitmask with bit n set if step n plays a note.
+ * The table is built once when the class loads and never changes, so a
+ * lookup is an array read that doesn't allocate or lock.
+ * 
+ * Patterns are not stored per rotation, rotate() applies it to the bits.
+ */
+public class EuclideanTable
+{
+	/** Longest pattern in the table, the maximum of the steps slider. */
+	public static final int MAXIMUM_STEPS = 64;
+	private static final int ROW_LENGTH = MAXIMUM_STEPS + 1;
+	private static final long [ ] PATTERNS = build ( );
+
+	/**
+	 * Build the table in a background thread, so the first change of a
+	 * pattern doesn't have to wait for it.
+	 */
+	public static void preload ( )
+	{
+		Thread thread = new Thread ( "EuclideanTable" )
+		{
+			@Override public void run ( )
+			{
+				get ( 1, 1 );
+			}
+		};
+		thread.setDaemon ( true );
+		thread.start ( );
+	}
+
+	/**
+	 * @param steps Pattern length, 0 to MAXIMUM_STEPS.
+	 * @param fills Steps that play a note, clamped to 0 to steps.
+	 * @return Bitmask of the pattern.
+	 */
+	public static long get ( int steps, int fills )
+	{
+		if ( steps < 0 || steps > MAXIMUM_STEPS )
+		{
+			throw new IllegalArgumentException ( "Steps must be 0 to " + MAXIMUM_STEPS + ": " + steps );
+		}
+		return PATTERNS[ ( steps * ROW_LENGTH ) + Math.max ( 0, Math.min ( fills, steps ) ) ];
+	}
+
+	/**
+	 * @return Bitmask of the pattern with the rotation applied.
+	 */
+	public static long get ( int steps, int fills, int rotation )
+	{
+		return rotate ( get ( steps, fills ), steps, rotation );
+	}
+
+	/**
+	 * Rotate a pattern to the left: the step at the rotation becomes the
+	 * first step, like the pattern rotation setting does.
+	 */
+	public static long rotate ( long pattern, int steps, int rotation )
+	{
+		if ( steps <= 0 )
+		{
+			return 0;
+		}
+
+		rotation = ( ( rotation % steps ) + steps ) % steps;
+		long mask = steps == 64 ? -1l : ( 1l << steps ) - 1;
+		pattern &= mask;
+		return rotation == 0 ? pattern : ( ( pattern >>> rotation ) | ( pattern << ( steps - rotation ) ) ) & mask;
+	}
+
+	/**
+	 * True if a step plays a note.
+	 */
+	public static boolean isHit ( long pattern, int step )
+	{
+		return ( pattern & ( 1l << step ) ) != 0;
+	}
+
+	private static long [ ] build ( )
+	{
+		long [ ] patterns = new long[ ROW_LENGTH * ROW_LENGTH ];
+		for ( int steps = 1; steps <= MAXIMUM_STEPS; steps++ )
+		{
+			for ( int fills = 1; fills <= steps; fills++ )
+			{
+				patterns[ ( steps * ROW_LENGTH ) + fills ] = EuclideanGenerator.bjorklund ( steps, fills )[ 0 ];
+			}
+		}
+		return patterns;
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import com.hisschemoller.epg.model.data.PatternVO;
+
+/**
+ * Compiled lookup of the steps in a pattern that play a note. One bit per
+ * step, with the pattern rotation already applied, so bit n is set if the
+ * sequencer must play a note when the pattern position reaches step n.
+ */
+public class HitTable
+{
+	/**
+	 * Build the hit table from the pattern's Euclidean pattern and rotation.
+	 * Patterns up to EuclideanTable.MAXIMUM_STEPS long are a table lookup,
+	 * longer ones are generated.
+	 * @param patternVO Pattern with up to date steps, fills and rotation.
+	 * @return Bitset with one bit per step.
+	 */
+	public static long [ ] compile ( PatternVO patternVO )
+	{
+		if ( patternVO.steps <= 0 )
+		{
+			return new long[ 0 ];
+		}
+
+		if ( patternVO.steps <= EuclideanTable.MAXIMUM_STEPS )
+		{
+			return new long [ ] { EuclideanTable.get ( patternVO.steps, patternVO.fills, patternVO.rotation ) };
+		}
+
+		return EuclideanGenerator.rotate ( EuclideanGenerator.generate ( patternVO.steps, patternVO.fills ), patternVO.steps, patternVO.rotation );
+	}
+
+	/**
+	 * Find the first step at or after a given step that plays a note.
+	 * @param table Hit table created by compile().
+	 * @param fromStep Step index to start searching, rotation applied.
+	 * @return Step index, or -1 if no note plays from fromStep to the end of the pattern.
+	 */
+	public static int nextHit ( long [ ] table, int fromStep )
+	{
+		int index = fromStep >> 6;
+		if ( index >= table.length )
+		{
+			return -1;
+		}
+
+		long word = table[ index ] & ( -1l << fromStep );
+		while ( word == 0 )
+		{
+			if ( ++index >= table.length )
+			{
+				return -1;
+			}
+			word = table[ index ];
+		}
+
+		return ( index << 6 ) + Long.numberOfTrailingZeros ( word );
+	}
+
+	/**
+	 * True if a note plays on the step.
+	 * @param table Hit table created by compile().
+	 * @param step Step index, rotation applied.
+	 */
+	public static boolean isHit ( long [ ] table, int step )
+	{
+		int index = step >> 6;
+		return index < table.length && ( table[ index ] & ( 1l << step ) ) != 0;
+	}
+}
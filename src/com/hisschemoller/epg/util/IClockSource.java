@@ -30,7 +30,11 @@ public interface IClockSource
 	
 	public void setTempoInBPM ( float bpm, int pulsesPerQuarterNote );
 	
+	public float getBPM ( );
+	
 	public void setSequencer ( ISequenceable sequencer );
 	
 	public int getPulsesSinceStart ( );
+	
+	public void setLookahead ( long lookahead );
 }
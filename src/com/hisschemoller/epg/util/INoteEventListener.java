@@ -18,22 +18,16 @@
  * see <http://www.gnu.org/licenses/>.
  */
 
-package com.hisschemoller.epg.notification.note;
+package com.hisschemoller.epg.util;
 
 import java.util.UUID;
 
-public class PatternPositionNote
+public interface INoteEventListener
 {
-	public UUID patternID;
-	public float position;
-
-	public PatternPositionNote ( )
-	{
-	}
-
-	public PatternPositionNote ( UUID patternID, float position )
-	{
-		this.patternID = patternID;
-		this.position = position;
-	}
+	/**
+	 * @param patternID Pattern that played the note.
+	 * @param midiStatus ShortMessage.NOTE_ON or NOTE_OFF.
+	 * @param stepIndex Step index in the pattern, rotation applied.
+	 */
+	public abstract void noteEventHandler ( UUID patternID, int midiStatus, int stepIndex );
 }
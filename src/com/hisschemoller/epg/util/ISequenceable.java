@@ -20,14 +20,18 @@
 
 package com.hisschemoller.epg.util;
 
-import javax.sound.midi.MidiEvent;
 import javax.sound.midi.ShortMessage;
 
-import com.hisschemoller.epg.model.data.PatternVO;
+import com.hisschemoller.epg.model.data.PatternSnapshot;
 
 public interface ISequenceable
 {
-	public void onClock ( );
+	/**
+	 * @param pulseTime System.nanoTime() at which the pulse sounds.
+	 * @param pulses Pulses since the previous call, 1 or more.
+	 * @return Pulses from this pulse to the next one on which something happens.
+	 */
+	public int onClock ( long pulseTime, int pulses );
 
 	public void start ( );
 
@@ -39,5 +43,5 @@ public interface ISequenceable
 
 	public void onSongPosition ( int songPosition );
 
-	public void onPatternNoteEnd ( PatternVO patternVO, MidiEvent midiEvent );
+	public void onPatternNoteEnd ( PatternSnapshot snapshot, int channel, int pitch, int velocity, int step );
 }
\ No newline at end of file
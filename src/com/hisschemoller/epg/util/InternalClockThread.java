@@ -20,105 +20,141 @@
 
 package com.hisschemoller.epg.util;
 
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Internal clock. Every pulse is scheduled against an absolute deadline on a
+ * nanosecond timeline: anchor time + pulses since anchor * interval. Timing
+ * errors therefore never accumulate. A tempo change starts a new anchor at the
+ * next deadline.
+ * 
+ * With a lookahead each pulse is rendered that much before its deadline, and
+ * the deadline is passed on so output can be timestamped for it.
+ * 
+ * The thread only wakes on pulses the sequencer needs, it skips the pulses on
+ * which nothing happens.
+ */
 public class InternalClockThread extends Thread implements IClockSource
 {
-	private ISequenceable _sequencer;
-	private boolean _isRunning = false;
-	private boolean _isActive = true;
-	private long _previousTime;
-	private int _pulsesSinceStart;
+	/** Resynchronise instead of catching up when this late. */
+	private static final long MAXIMUM_LATENESS = 100000000l;
+	private PrecisionTimer _timer = new PrecisionTimer ( );
+	/** Held while a pulse is rendered, stopClock() waits for it. */
+	private final Object _pulseLock = new Object ( );
+	private volatile ISequenceable _sequencer;
+	private volatile boolean _isRunning = false;
+	private volatile boolean _isActive = true;
+	private volatile boolean _isRestartRequested = false;
+	private volatile double _newInterval;
+	private volatile int _pulsesSinceStart;
+	private volatile long _lookahead = 0;
+	private volatile float _bpm;
 	private double _interval;
-	private double _totalTimePassedReal;
-	private double _totalTimePassedIdeal;
-	
+	private long _anchorTime;
+	private long _anchorPulse;
+
 	public InternalClockThread ( ISequenceable sequencer, float newBpm, int pulsesPerQuarterNote )
 	{
+		super ( "InternalClockThread" );
 		_sequencer = sequencer;
-		_previousTime = System.nanoTime ( );
 		setTempoInBPM ( newBpm, pulsesPerQuarterNote );
-		start();
+		_interval = _newInterval;
+		setPriority ( Thread.MAX_PRIORITY );
+		start ( );
 	}
 
 	public void run ( )
 	{
-		long restPeriod = 0;
-		double timingError = 0;
-		
+		int pulses = 1;
+
 		while ( _isActive )
 		{
-			if ( _isRunning )
+			if ( !_isRunning )
 			{
-				/** The actual work is done here... */
-				_sequencer.onClock ( );
-				_pulsesSinceStart++;
+				/** Sleep until startClock() or dispose() wakes the thread. */
+				LockSupport.park ( this );
+				continue;
+			}
 
-				// Time difference since last beat & wait if necessary.
-				double timePassed = ( System.nanoTime ( ) - _previousTime ) * 1.0e-6;
+			if ( _isRestartRequested )
+			{
+				_isRestartRequested = false;
+				_interval = _newInterval;
+				_anchorTime = System.nanoTime ( ) + _lookahead;
+				_anchorPulse = 0;
+				_pulsesSinceStart = 0;
+				pulses = 1;
+			}
 
-				// Sleep for a while.
-				restPeriod = ( long ) ( _interval * .96d );
-				try
-				{
-					if ( ( restPeriod > 1 ) && ( timePassed < restPeriod ) ) Thread.sleep ( restPeriod );
-				}
-				catch ( InterruptedException error )
+			synchronized ( _pulseLock )
+			{
+				/** stopClock() may have been called since the check above. */
+				if ( !_isRunning )
 				{
-					System.out.println ( "force quit..." );
+					continue;
 				}
 
-				// Wake up a little early and watch the alarm clock.
-				while ( timePassed < ( _interval - timingError ) )
-				{
-					timePassed = ( System.nanoTime ( ) - _previousTime ) * 1.0e-6;
-				}
+				/** The actual work is done here... The sequencer tells how many pulses can be skipped. */
+				pulses = Math.max ( 1, _sequencer.onClock ( getDeadline ( _pulsesSinceStart ), pulses ) );
+				_pulsesSinceStart += pulses;
+			}
 
-				_previousTime = System.nanoTime ( );
+			/** Pick up a tempo change at the next deadline. */
+			if ( _newInterval != _interval )
+			{
+				_anchorTime = getDeadline ( _pulsesSinceStart );
+				_anchorPulse = _pulsesSinceStart;
+				_interval = _newInterval;
+			}
 
-				_totalTimePassedReal += timePassed;
-				_totalTimePassedIdeal += _interval;
+			long lateness = _timer.waitUntil ( getDeadline ( _pulsesSinceStart ) - _lookahead );
 
-				// If more time has passed between notes than should have
-				// passed, then slow down things a little.
-				timingError = _totalTimePassedReal - _totalTimePassedIdeal;
-			}
-			else
+			/** After a long stall start a new timeline instead of racing to catch up. */
+			if ( lateness > MAXIMUM_LATENESS )
 			{
-				try
-				{
-					Thread.sleep ( 100 );
-				}
-				catch ( InterruptedException e )
-				{
-					break;
-				}
+				_anchorTime = System.nanoTime ( ) + _lookahead;
+				_anchorPulse = _pulsesSinceStart;
 			}
 		}
 	}
 
 	public void startClock ( )
 	{
-		_pulsesSinceStart = 0;
-		_totalTimePassedReal = 0;
-		_totalTimePassedIdeal = 0;
-		_previousTime = System.nanoTime ( );
+		_isRestartRequested = true;
 		_isRunning = true;
+		LockSupport.unpark ( this );
 	}
 
+	/**
+	 * Returns once the pulse that is being rendered has finished, so no
+	 * more notes are played after this.
+	 */
 	public void stopClock ( )
 	{
 		_isRunning = false;
+
+		/** Wait for the pulse that is being rendered. */
+		synchronized ( _pulseLock )
+		{
+		}
 	}
 
 	public void dispose ( )
 	{
+		stopClock ( );
 		_isActive = false;
+		LockSupport.unpark ( this );
 	}
 
 	public void setTempoInBPM ( float bpm, int pulsesPerQuarterNote )
 	{
-		_totalTimePassedReal = 0;
-		_totalTimePassedIdeal = 0;
-		_interval = ( 1000.0 / ( bpm / 60 ) ) / pulsesPerQuarterNote;
+		_bpm = bpm;
+		_newInterval = ( 1000000000.0 / ( bpm / 60 ) ) / pulsesPerQuarterNote;
+	}
+
+	public float getBPM ( )
+	{
+		return _bpm;
 	}
 
 	public void setSequencer ( ISequenceable sequencer )
@@ -130,4 +166,20 @@ public class InternalClockThread extends Thread implements IClockSource
 	{
 		return _pulsesSinceStart;
 	}
+
+	/**
+	 * @param lookahead Nanoseconds each pulse is rendered before it sounds.
+	 */
+	public void setLookahead ( long lookahead )
+	{
+		_lookahead = lookahead;
+	}
+
+	/**
+	 * Absolute time of a pulse on the current timeline.
+	 */
+	private long getDeadline ( long pulse )
+	{
+		return _anchorTime + ( long ) ( ( pulse - _anchorPulse ) * _interval );
+	}
 }
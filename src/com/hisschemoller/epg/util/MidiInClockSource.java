@@ -20,29 +20,156 @@
 
 package com.hisschemoller.epg.util;
 
+import java.util.concurrent.locks.LockSupport;
+
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.Receiver;
 import javax.sound.midi.ShortMessage;
 import javax.sound.midi.Transmitter;
 
-public class MidiInClockSource implements IClockSource, Receiver
+/**
+ * Follows an external MIDI clock. Incoming clock ticks only update a delay
+ * locked loop (DLL) that filters their jittery arrival times into a smooth tick
+ * time and tick period. A separate follower thread plays the sequencer's pulses
+ * on that filtered timeline, so jitter in the incoming clock doesn't reach the
+ * output. Each tick can be divided into several sequencer pulses, and the tick
+ * period gives the tempo estimate. Like the internal clock the follower only
+ * wakes on the pulses the sequencer needs.
+ * 
+ * The follower may run one tick ahead of the last received tick, so a late
+ * tick doesn't delay the pulses. Start, Stop and Song Position messages are
+ * passed on by the follower thread as well, so the sequencer is only ever
+ * called from one thread.
+ */
+public class MidiInClockSource implements IClockSource, Receiver, Runnable
 {
+	/** Loop bandwidth in Hz. Lower filters more jitter, higher follows tempo changes faster. */
+	private static final double BANDWIDTH = 1.0;
+	/** Relock when a tick is this many periods early or late, or after a gap in the clock. */
+	private static final double MAXIMUM_ERROR = 0.5;
+	private static final double MAXIMUM_GAP = 4.0;
+	private static final int NO_SONG_POSITION = -1;
 	private ISequenceable _sequencer;
 	private Transmitter _transmitter;
+	private Thread _follower;
+	private PrecisionTimer _timer = new PrecisionTimer ( );
+	private int _pulsesPerTick;
+	private volatile boolean _isActive = true;
+	private volatile long _lookahead = 0;
+
+	/** DLL state, guarded by this. */
+	private boolean _hasTick = false;
+	private boolean _isLocked = false;
+	private double _tickTime;
+	private double _period = ( 60000000000.0 / 120 ) / MidiUtils.MIDI_CLOCK_PPQN;
+	private long _arrivalTime;
+
+	/** Follower state, guarded by this. */
+	private int _ticksSinceStart = 0;
 	private int _pulsesSinceStart = 0;
-	private double _timestamp = 0;
-	private double _interval;
+	private boolean _isStartPending = false;
+	private boolean _isStopPending = false;
+	private int _pendingSongPosition = NO_SONG_POSITION;
 
-	public MidiInClockSource ( ISequenceable sequencer, Transmitter transmitter )
+	/**
+	 * @param pulsesPerQuarterNote Sequencer resolution, a multiple of the 24 PPQN MIDI clock.
+	 */
+	public MidiInClockSource ( ISequenceable sequencer, Transmitter transmitter, int pulsesPerQuarterNote )
 	{
 		_sequencer = sequencer;
 		_transmitter = transmitter;
+		_pulsesPerTick = Math.max ( 1, pulsesPerQuarterNote / MidiUtils.MIDI_CLOCK_PPQN );
 		_transmitter.setReceiver ( this );
+
+		_follower = new Thread ( this, "MidiInClockFollower" );
+		_follower.setPriority ( Thread.MAX_PRIORITY );
+		_follower.start ( );
+	}
+
+	/**
+	 * Follower thread: play each sequencer pulse at its time on the filtered clock.
+	 */
+	public void run ( )
+	{
+		/** Pulses the sequencer asked to skip to, counted from the last played pulse. */
+		int skip = 1;
+
+		while ( _isActive )
+		{
+			boolean isStart;
+			boolean isStop;
+			int songPosition;
+			long pulseTime = 0;
+			int targetPulse = 0;
+			boolean isPulseDue = false;
+
+			synchronized ( this )
+			{
+				isStart = _isStartPending;
+				isStop = _isStopPending;
+				songPosition = _pendingSongPosition;
+				_isStartPending = false;
+				_isStopPending = false;
+				_pendingSongPosition = NO_SONG_POSITION;
+
+				/** Pulses of received ticks may play, and those of the next tick once its time can be predicted. */
+				int lastPlayableTick = _isLocked ? _ticksSinceStart : _ticksSinceStart - 1;
+				int playableEnd = ( lastPlayableTick + 1 ) * _pulsesPerTick;
+				if ( _hasTick && _pulsesSinceStart < playableEnd )
+				{
+					targetPulse = Math.min ( _pulsesSinceStart + skip - 1, playableEnd - 1 );
+					pulseTime = getPulseTime ( targetPulse );
+					isPulseDue = true;
+				}
+			}
+
+			if ( isStop )
+			{
+				_sequencer.stop ( );
+			}
+
+			if ( songPosition != NO_SONG_POSITION )
+			{
+				_sequencer.onSongPosition ( songPosition );
+				skip = 1;
+			}
+
+			if ( isStart )
+			{
+				_sequencer.start ( );
+				skip = 1;
+			}
+
+			if ( !isPulseDue )
+			{
+				/** Wait for the next tick or transport message. */
+				LockSupport.park ( this );
+				continue;
+			}
+
+			_timer.waitUntil ( pulseTime - _lookahead );
+
+			int pulses;
+			synchronized ( this )
+			{
+				/** A Start while waiting restarts the count, so this pulse is dropped. */
+				if ( _isStartPending )
+				{
+					continue;
+				}
+				pulses = targetPulse - _pulsesSinceStart + 1;
+				_pulsesSinceStart = targetPulse + 1;
+			}
+
+			skip = Math.max ( 1, _sequencer.onClock ( pulseTime, pulses ) );
+		}
 	}
 
+	/**
+	 * Counting restarts when the MIDI Start message arrives.
+	 */
 	public void startClock ( )
 	{
-		_pulsesSinceStart = 0;
 	}
 
 	public void stopClock ( )
@@ -52,11 +179,23 @@ public class MidiInClockSource implements IClockSource, Receiver
 	public void dispose ( )
 	{
 		close ( );
+		_isActive = false;
+		LockSupport.unpark ( _follower );
 	}
 
+	/**
+	 * The tempo is set by the external clock.
+	 */
 	public void setTempoInBPM ( float bpm, int pulsesPerQuarterNote )
 	{
-		// TODO Auto-generated method stub
+	}
+
+	/**
+	 * @return Tempo estimated from the filtered tick period, 0 if no clock is received.
+	 */
+	public synchronized float getBPM ( )
+	{
+		return _isLocked ? ( float ) ( 60000000000.0 / ( _period * MidiUtils.MIDI_CLOCK_PPQN ) ) : 0;
 	}
 
 	public void setSequencer ( ISequenceable sequencer )
@@ -64,11 +203,19 @@ public class MidiInClockSource implements IClockSource, Receiver
 		_sequencer = sequencer;
 	}
 
-	public int getPulsesSinceStart ( )
+	public synchronized int getPulsesSinceStart ( )
 	{
 		return _pulsesSinceStart;
 	}
 
+	/**
+	 * Pulses can be rendered ahead up to the predicted time of the next tick.
+	 */
+	public void setLookahead ( long lookahead )
+	{
+		_lookahead = lookahead;
+	}
+
 	public void close ( )
 	{
 		_transmitter.setReceiver ( null );
@@ -85,26 +232,87 @@ public class MidiInClockSource implements IClockSource, Receiver
 				switch ( shortMessage.getChannel ( ) )
 				{
 				case 0x8:
-					_sequencer.onClock ( );
-					_pulsesSinceStart++;
-					_interval = timeStamp - _timestamp;
-					_timestamp = timeStamp;
+					onTick ( System.nanoTime ( ) );
 					break;
 					
 				case 0x2:
-					_sequencer.onSongPosition ( MidiUtils.get14bitValue ( shortMessage.getData1 ( ), shortMessage.getData2 ( ) ) );
+					synchronized ( this )
+					{
+						_pendingSongPosition = MidiUtils.get14bitValue ( shortMessage.getData1 ( ), shortMessage.getData2 ( ) );
+					}
 					break;
 					
 				case 0xA:
-					_sequencer.start ( );
+					synchronized ( this )
+					{
+						_ticksSinceStart = 0;
+						_pulsesSinceStart = 0;
+						_isStartPending = true;
+					}
 					break;
 					
 				case 0xC:
-					_sequencer.stop ( );
+					synchronized ( this )
+					{
+						_isStopPending = true;
+					}
 					break;
 				}
+				LockSupport.unpark ( _follower );
 				break;
 			}
 		}
 	}
+
+	/**
+	 * Update the DLL with the arrival time of a clock tick.
+	 */
+	private synchronized void onTick ( long arrivalTime )
+	{
+		if ( !_hasTick || arrivalTime - _arrivalTime > _period * MAXIMUM_GAP )
+		{
+			/** First tick, or the clock restarted after a pause. */
+			_tickTime = arrivalTime;
+			_isLocked = false;
+			_hasTick = true;
+		}
+		else if ( !_isLocked )
+		{
+			/** Second tick, measure the period. */
+			_period = arrivalTime - _arrivalTime;
+			_tickTime = arrivalTime;
+			_isLocked = true;
+		}
+		else
+		{
+			double predictedTime = _tickTime + _period;
+			double error = arrivalTime - predictedTime;
+
+			if ( Math.abs ( error ) > _period * MAXIMUM_ERROR )
+			{
+				/** Tempo jump, relock on the measured period. */
+				_period = arrivalTime - _arrivalTime;
+				_tickTime = arrivalTime;
+			}
+			else
+			{
+				/** Second order loop, coefficients from the bandwidth and current period. */
+				double omega = 2 * Math.PI * BANDWIDTH * ( _period / 1000000000.0 );
+				_tickTime = predictedTime + ( Math.sqrt ( 2 ) * omega * error );
+				_period += omega * omega * error;
+			}
+		}
+
+		_arrivalTime = arrivalTime;
+		_ticksSinceStart++;
+	}
+
+	/**
+	 * Time of a pulse on the filtered clock, counted from the last received tick.
+	 */
+	private long getPulseTime ( int pulse )
+	{
+		int lastTickPulse = ( _ticksSinceStart - 1 ) * _pulsesPerTick;
+		return ( long ) ( _tickTime + ( ( pulse - lastTickPulse ) * _period / _pulsesPerTick ) );
+	}
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+/**
+ * Direct MIDI output from the clock thread to the open Receiver. Every channel
+ * and pitch has its own preallocated Note On and Note Off message, which is
+ * updated and sent again for each note, so sending a note creates no garbage.
+ * Receivers copy the message data in send(), so reusing a message is safe.
+ * 
+ * Notes rendered ahead of time are sent with a device timestamp, so the driver
+ * places them at the moment they were scheduled for. The System.nanoTime()
+ * timeline is mapped to the device's microsecond clock once a second.
+ */
+public class MidiOutPort
+{
+	private static final int NUM_PITCHES = 128;
+	private static final int NUM_SLOTS = 16 * NUM_PITCHES;
+	private static final long SYNC_INTERVAL = 1000000000l;
+	private MidiDevice _device;
+	private Receiver _receiver;
+	private ShortMessage [ ] _noteOnMessages = new ShortMessage[ NUM_SLOTS ];
+	private ShortMessage [ ] _noteOffMessages = new ShortMessage[ NUM_SLOTS ];
+	private long _syncTime;
+	private long _syncMicroseconds = -1;
+	private boolean _isSynced = false;
+
+	public MidiOutPort ( MidiDevice device, Receiver receiver )
+	{
+		_device = device;
+		_receiver = receiver;
+
+		for ( int i = 0; i < NUM_SLOTS; i++ )
+		{
+			_noteOnMessages[ i ] = new ShortMessage ( );
+			_noteOffMessages[ i ] = new ShortMessage ( );
+		}
+	}
+
+	/**
+	 * @param time System.nanoTime() at which the note should sound, or -1 to send it right away.
+	 */
+	public void sendNoteOn ( int channel, int pitch, int velocity, long time )
+	{
+		send ( _noteOnMessages[ ( channel * NUM_PITCHES ) + pitch ], ShortMessage.NOTE_ON, channel, pitch, velocity, time );
+	}
+
+	/**
+	 * @param time System.nanoTime() at which the note should end, or -1 to send it right away.
+	 */
+	public void sendNoteOff ( int channel, int pitch, int velocity, long time )
+	{
+		send ( _noteOffMessages[ ( channel * NUM_PITCHES ) + pitch ], ShortMessage.NOTE_OFF, channel, pitch, velocity, time );
+	}
+
+	public Receiver getReceiver ( )
+	{
+		return _receiver;
+	}
+
+	/**
+	 * Convert a System.nanoTime() time to a device timestamp in microseconds.
+	 * @return Timestamp, or -1 if the time has passed or the device has no clock.
+	 */
+	public synchronized long getTimeStamp ( long time )
+	{
+		long now = System.nanoTime ( );
+		if ( time <= now )
+		{
+			return -1;
+		}
+
+		if ( !_isSynced || now - _syncTime >= SYNC_INTERVAL )
+		{
+			sync ( );
+		}
+
+		if ( _syncMicroseconds < 0 )
+		{
+			return -1;
+		}
+
+		return _syncMicroseconds + ( ( time - _syncTime ) / 1000 );
+	}
+
+	/**
+	 * Read the device clock, taking the middle of the call as its System.nanoTime().
+	 */
+	private void sync ( )
+	{
+		long before = System.nanoTime ( );
+		_syncMicroseconds = _device.getMicrosecondPosition ( );
+		long after = System.nanoTime ( );
+		_syncTime = before + ( ( after - before ) >> 1 );
+		_isSynced = true;
+	}
+
+	private void send ( ShortMessage message, int command, int channel, int pitch, int velocity, long time )
+	{
+		try
+		{
+			message.setMessage ( command, channel, pitch, velocity );
+			_receiver.send ( message, ( time < 0 ) ? -1 : getTimeStamp ( time ) );
+		}
+		catch ( InvalidMidiDataException exception )
+		{
+			System.out.println ( "MidiOutPort.send() exception - Invalid MIDI data: " + exception.getMessage ( ) );
+		}
+		catch ( IllegalStateException exception )
+		{
+			/** The receiver was closed because another MIDI Out device was opened. */
+		}
+	}
+}
@@ -2,6 +2,9 @@ package com.hisschemoller.epg.util;
 
 public class MidiUtils
 {
+	/** Resolution of MIDI clock messages. */
+	public static final int MIDI_CLOCK_PPQN = 24;
+
 	private static final String [ ] keyNames =
 	{ "C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B" };
 
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import java.util.UUID;
+
+/**
+ * Real-time channel for the notes the sequencer plays, from the clock thread
+ * to the view. A bounded single producer, single consumer ring buffer with
+ * preallocated slots: publishing a note is a few stores and never allocates,
+ * locks or waits. The view drains the ring once per frame on its own thread.
+ * 
+ * The view only shows the notes, so when it falls behind and the ring is
+ * full new notes are dropped and counted instead of blocking the clock.
+ */
+public class NoteEventRing
+{
+	private static final int NUM_SLOTS = 4096;
+	private static final int SLOT_MASK = NUM_SLOTS - 1;
+	private UUID [ ] _patternIDs = new UUID[ NUM_SLOTS ];
+	private int [ ] _midiStatuses = new int[ NUM_SLOTS ];
+	private int [ ] _stepIndexes = new int[ NUM_SLOTS ];
+	private volatile long _head = 0;
+	private volatile long _tail = 0;
+	private volatile long _numDropped = 0;
+
+	/**
+	 * Called by one producer at a time: the clock thread, or the thread that
+	 * stops playback while it holds the sequencer's pulse lock.
+	 */
+	public void publish ( UUID patternID, int midiStatus, int stepIndex )
+	{
+		long tail = _tail;
+		if ( tail - _head == NUM_SLOTS )
+		{
+			_numDropped++;
+			return;
+		}
+
+		int index = ( int ) ( tail & SLOT_MASK );
+		_patternIDs[ index ] = patternID;
+		_midiStatuses[ index ] = midiStatus;
+		_stepIndexes[ index ] = stepIndex;
+		_tail = tail + 1;
+	}
+
+	/**
+	 * Pass the notes published since the last call to a listener. Called by
+	 * one consumer thread only.
+	 */
+	public void drain ( INoteEventListener listener )
+	{
+		long head = _head;
+		long tail = _tail;
+		while ( head != tail )
+		{
+			int index = ( int ) ( head & SLOT_MASK );
+			listener.noteEventHandler ( _patternIDs[ index ], _midiStatuses[ index ], _stepIndexes[ index ] );
+			head++;
+			_head = head;
+		}
+	}
+
+	/**
+	 * @return Notes dropped because the ring was full.
+	 */
+	public long getNumDropped ( )
+	{
+		return _numDropped;
+	}
+}
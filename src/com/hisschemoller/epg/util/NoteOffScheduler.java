@@ -0,0 +1,190 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import java.util.Arrays;
+
+import com.hisschemoller.epg.model.data.PatternSnapshot;
+
+/**
+ * Schedules Note Off events on the sequencer's pulse counter. A hashed timer
+ * wheel with one bucket per pulse holds the pending notes. Every MIDI channel
+ * and pitch has one preallocated slot, linked into the bucket of the pulse its
+ * note ends on, so scheduling, retriggering and ending a note are O(1) and
+ * create no objects or threads.
+ */
+public class NoteOffScheduler
+{
+	private static final int NUM_PITCHES = 128;
+	private static final int NUM_SLOTS = 16 * NUM_PITCHES;
+	private static final int NONE = -1;
+	private ISequenceable _sequenceable;
+	private int _wheelMask;
+	private int [ ] _buckets;
+	private int [ ] _next = new int[ NUM_SLOTS ];
+	private int [ ] _previous = new int[ NUM_SLOTS ];
+	private boolean [ ] _isActive = new boolean[ NUM_SLOTS ];
+	private long [ ] _duePulse = new long[ NUM_SLOTS ];
+	private PatternSnapshot [ ] _snapshot = new PatternSnapshot[ NUM_SLOTS ];
+	private int [ ] _velocity = new int[ NUM_SLOTS ];
+	private int [ ] _step = new int[ NUM_SLOTS ];
+	private long _pulse;
+
+	/**
+	 * @param sequenceable Receives the Note Off events.
+	 * @param maximumNoteLength Longest note in pulses. Longer notes are shortened to this length.
+	 */
+	public NoteOffScheduler ( ISequenceable sequenceable, int maximumNoteLength )
+	{
+		_sequenceable = sequenceable;
+
+		int wheelSize = Integer.highestOneBit ( maximumNoteLength ) << 1;
+		_wheelMask = wheelSize - 1;
+		_buckets = new int[ wheelSize ];
+		Arrays.fill ( _buckets, NONE );
+	}
+
+	/**
+	 * Schedule the end of a note that starts on the current pulse. A note
+	 * still playing on the same channel and pitch is ended first.
+	 * @param noteLength Duration in pulses.
+	 */
+	public synchronized void schedule ( PatternSnapshot snapshot, int channel, int pitch, int velocity, int step, int noteLength )
+	{
+		int slot = ( channel * NUM_PITCHES ) + pitch;
+		if ( _isActive[ slot ] )
+		{
+			unlink ( slot );
+			end ( slot );
+		}
+
+		_snapshot[ slot ] = snapshot;
+		_velocity[ slot ] = velocity;
+		_step[ slot ] = step;
+
+		/** Zero length notes end right away. */
+		if ( noteLength <= 0 )
+		{
+			end ( slot );
+			return;
+		}
+
+		_duePulse[ slot ] = _pulse + Math.min ( noteLength, _wheelMask );
+		link ( slot );
+	}
+
+	/**
+	 * Move the wheel to a pulse and end all notes due on it. Pulses may be
+	 * skipped as long as no notes are due on them, see getPulsesToNextDue().
+	 * @param pulse Pulse count of the sequencer.
+	 */
+	public synchronized void advance ( long pulse )
+	{
+		_pulse = pulse;
+
+		int slot = _buckets[ ( int ) ( pulse & _wheelMask ) ];
+		while ( slot != NONE )
+		{
+			int nextSlot = _next[ slot ];
+			if ( _duePulse[ slot ] <= pulse )
+			{
+				unlink ( slot );
+				end ( slot );
+			}
+			slot = nextSlot;
+		}
+	}
+
+	/**
+	 * Pulses from the current pulse to the first pulse a note ends on.
+	 * @param maximum Number of pulses to look ahead.
+	 * @return Pulses to the first due note, or maximum if none is due before.
+	 */
+	public synchronized int getPulsesToNextDue ( int maximum )
+	{
+		int n = Math.min ( maximum, _wheelMask );
+		for ( int i = 1; i <= n; i++ )
+		{
+			if ( _buckets[ ( int ) ( ( _pulse + i ) & _wheelMask ) ] != NONE )
+			{
+				return i;
+			}
+		}
+
+		return maximum;
+	}
+
+	/**
+	 * End all notes that are still playing, for example when playback stops.
+	 */
+	public synchronized void flush ( )
+	{
+		int n = NUM_SLOTS;
+		while ( --n > -1 )
+		{
+			if ( _isActive[ n ] )
+			{
+				unlink ( n );
+				end ( n );
+			}
+		}
+	}
+
+	private void end ( int slot )
+	{
+		PatternSnapshot snapshot = _snapshot[ slot ];
+		_snapshot[ slot ] = null;
+		_sequenceable.onPatternNoteEnd ( snapshot, slot / NUM_PITCHES, slot % NUM_PITCHES, _velocity[ slot ], _step[ slot ] );
+	}
+
+	private void link ( int slot )
+	{
+		int bucket = ( int ) ( _duePulse[ slot ] & _wheelMask );
+		int head = _buckets[ bucket ];
+		_next[ slot ] = head;
+		_previous[ slot ] = NONE;
+		if ( head != NONE )
+		{
+			_previous[ head ] = slot;
+		}
+		_buckets[ bucket ] = slot;
+		_isActive[ slot ] = true;
+	}
+
+	private void unlink ( int slot )
+	{
+		int next = _next[ slot ];
+		int previous = _previous[ slot ];
+		if ( previous != NONE )
+		{
+			_next[ previous ] = next;
+		}
+		else
+		{
+			_buckets[ ( int ) ( _duePulse[ slot ] & _wheelMask ) ] = next;
+		}
+		if ( next != NONE )
+		{
+			_previous[ next ] = previous;
+		}
+		_isActive[ slot ] = false;
+	}
+}
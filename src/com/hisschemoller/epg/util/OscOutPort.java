@@ -0,0 +1,206 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * Direct OSC output from the clock thread. Messages are encoded straight into
+ * the send queues of their destinations as one OSC bundle per pulse, so
+ * sending a note creates no garbage and never blocks the clock.
+ * 
+ * Every message has the layout "/address ,iiii" with four int arguments. The
+ * padded address and type tags are encoded once per pattern with
+ * getMessagePrefix(). The bundle timetag is the NTP time at which the notes
+ * sound, mapped from the System.nanoTime() timeline once a second.
+ * 
+ * Messages are routed by address prefix. A message goes to the targets of
+ * every route whose prefix matches a whole part of its address, or to the
+ * default targets if no route matches.
+ */
+public class OscOutPort
+{
+	private static final Charset ASCII = Charset.forName ( "US-ASCII" );
+	private static final byte [ ] TYPE_TAGS = ",iiii\0\0\0".getBytes ( ASCII );
+	/** Seconds from the NTP epoch, 1900, to the Java epoch, 1970. */
+	private static final long NTP_OFFSET = 2208988800l;
+	private static final long SYNC_INTERVAL = 1000000000l;
+	private OscTarget [ ] _targets;
+	private OscTarget [ ] _defaultTargets;
+	private byte [ ] [ ] _routePrefixes;
+	private OscTarget [ ] [ ] _routeTargets;
+	private long _numMessages = 0;
+	private long _time;
+	private long _timetag;
+	private long _syncTime;
+	private long _epochOffset;
+	private boolean _isSynced = false;
+
+	/**
+	 * @param targets All destinations, closed together with the port.
+	 * @param defaultTargets Destinations of messages no route matches.
+	 * @param routePrefixes Address prefix of each route, like "/eu/pattern1".
+	 * @param routeTargets Destinations of each route.
+	 */
+	public OscOutPort ( OscTarget [ ] targets, OscTarget [ ] defaultTargets, String [ ] routePrefixes, OscTarget [ ] [ ] routeTargets )
+	{
+		_targets = targets;
+		_defaultTargets = defaultTargets;
+		_routeTargets = routeTargets;
+		_routePrefixes = new byte[ routePrefixes.length ][ ];
+		for ( int i = 0; i < routePrefixes.length; i++ )
+		{
+			_routePrefixes[ i ] = routePrefixes[ i ].getBytes ( ASCII );
+		}
+	}
+
+	/**
+	 * Encode the address and type tags of a message, both padded to a
+	 * multiple of four bytes as OSC requires.
+	 * @param address OSC address pattern, like "/eu/pattern0".
+	 */
+	public static byte [ ] getMessagePrefix ( String address )
+	{
+		byte [ ] addressBytes = address.getBytes ( ASCII );
+		int addressSize = ( addressBytes.length + 4 ) & ~3;
+		byte [ ] prefix = new byte[ addressSize + TYPE_TAGS.length ];
+		System.arraycopy ( addressBytes, 0, prefix, 0, addressBytes.length );
+		System.arraycopy ( TYPE_TAGS, 0, prefix, addressSize, TYPE_TAGS.length );
+		return prefix;
+	}
+
+	/**
+	 * Add a message to the bundle of each of its destinations. Bundles for
+	 * another time are queued first.
+	 * @param messagePrefix Encoded address and type tags from getMessagePrefix().
+	 * @param time System.nanoTime() at which the message should take effect.
+	 */
+	public synchronized void add ( byte [ ] messagePrefix, int argument0, int argument1, int argument2, int argument3, long time )
+	{
+		if ( _numMessages == 0 || time != _time )
+		{
+			flush ( );
+			_time = time;
+			_timetag = getTimetag ( time );
+		}
+
+		long messageID = ++_numMessages;
+		boolean isRouted = false;
+		for ( int i = 0; i < _routePrefixes.length; i++ )
+		{
+			if ( isMatch ( _routePrefixes[ i ], messagePrefix ) )
+			{
+				isRouted = true;
+				add ( _routeTargets[ i ], messageID, messagePrefix, argument0, argument1, argument2, argument3 );
+			}
+		}
+
+		if ( !isRouted )
+		{
+			add ( _defaultTargets, messageID, messagePrefix, argument0, argument1, argument2, argument3 );
+		}
+	}
+
+	/**
+	 * Queue the bundles of all destinations for sending.
+	 */
+	public synchronized void flush ( )
+	{
+		for ( int i = 0; i < _targets.length; i++ )
+		{
+			_targets[ i ].flush ( );
+		}
+	}
+
+	/**
+	 * Stop the sender threads of all destinations.
+	 */
+	public synchronized void close ( )
+	{
+		for ( int i = 0; i < _targets.length; i++ )
+		{
+			_targets[ i ].close ( );
+		}
+	}
+
+	/**
+	 * @return All destinations, with their send counters.
+	 */
+	public OscTarget [ ] getTargets ( )
+	{
+		return _targets;
+	}
+
+	private void add ( OscTarget [ ] targets, long messageID, byte [ ] messagePrefix, int argument0, int argument1, int argument2, int argument3 )
+	{
+		for ( int i = 0; i < targets.length; i++ )
+		{
+			if ( targets[ i ].mark ( messageID ) )
+			{
+				targets[ i ].add ( messagePrefix, argument0, argument1, argument2, argument3, _timetag );
+			}
+		}
+	}
+
+	/**
+	 * True if the address starts with the route prefix, followed by a slash
+	 * or the end of the address. "/eu/pattern1" matches "/eu/pattern1" and
+	 * "/eu/pattern1/x" but not "/eu/pattern10".
+	 */
+	private static boolean isMatch ( byte [ ] routePrefix, byte [ ] messagePrefix )
+	{
+		int n = routePrefix.length;
+		if ( n == 0 || n >= messagePrefix.length )
+		{
+			return false;
+		}
+
+		for ( int i = 0; i < n; i++ )
+		{
+			if ( routePrefix[ i ] != messagePrefix[ i ] )
+			{
+				return false;
+			}
+		}
+
+		return messagePrefix[ n ] == '/' || messagePrefix[ n ] == 0 || routePrefix[ n - 1 ] == '/';
+	}
+
+	/**
+	 * NTP timetag for a System.nanoTime() time: seconds since 1900 in the
+	 * high 32 bits, the fraction of a second in the low 32 bits.
+	 */
+	private long getTimetag ( long time )
+	{
+		long now = System.nanoTime ( );
+		if ( !_isSynced || now - _syncTime > SYNC_INTERVAL )
+		{
+			_epochOffset = ( System.currentTimeMillis ( ) * 1000000l ) - now;
+			_syncTime = now;
+			_isSynced = true;
+		}
+
+		long epochTime = time + _epochOffset;
+		long seconds = ( epochTime / 1000000000l ) + NTP_OFFSET;
+		long fraction = ( ( epochTime % 1000000000l ) << 32 ) / 1000000000l;
+		return ( seconds << 32 ) | fraction;
+	}
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One OSC destination with its own send queue and sender thread. Bundles are
+ * encoded straight into a slot of a bounded single producer, single consumer
+ * ring buffer, and the sender thread sends them from there. A slow or
+ * unreachable destination only fills its own queue: when the queue is full
+ * new messages are dropped and counted, the clock never waits.
+ * 
+ * The producer methods must not be called by two threads at once, OscOutPort
+ * calls them while holding its lock.
+ */
+public class OscTarget implements Runnable
+{
+	private static final int NUM_SLOTS = 32;
+	private static final int SLOT_MASK = NUM_SLOTS - 1;
+	private static final int SLOT_SIZE = 8192;
+	private static final int TIMETAG_INDEX = 8;
+	private static final byte [ ] BUNDLE_TAG = { '#', 'b', 'u', 'n', 'd', 'l', 'e', 0 };
+	private final InetSocketAddress _address;
+	private DatagramChannel _channel;
+	private Thread _sender;
+	private ByteBuffer [ ] _slots = new ByteBuffer[ NUM_SLOTS ];
+	private long [ ] _enqueueTimes = new long[ NUM_SLOTS ];
+	private volatile long _head = 0;
+	private volatile long _tail = 0;
+	private volatile boolean _isActive = true;
+	private volatile boolean _isWaiting = false;
+
+	/** Producer state. */
+	private ByteBuffer _bundle;
+	private long _timetag;
+	private long _mark = -1;
+
+	/** Counters, each written by one thread only. */
+	private volatile long _numSent = 0;
+	private volatile long _numDropped = 0;
+	private volatile long _numFailed = 0;
+	private volatile long _latency = 0;
+	private volatile long _maximumLatency = 0;
+
+	public OscTarget ( InetSocketAddress address ) throws IOException
+	{
+		_address = address;
+		_channel = DatagramChannel.open ( );
+		_channel.connect ( address );
+
+		for ( int i = 0; i < NUM_SLOTS; i++ )
+		{
+			_slots[ i ] = ByteBuffer.allocateDirect ( SLOT_SIZE );
+		}
+
+		_sender = new Thread ( this, "OscSender " + address.getHostString ( ) + ":" + address.getPort ( ) );
+		_sender.setDaemon ( true );
+		_sender.start ( );
+	}
+
+	/**
+	 * Add a message to the bundle being encoded. A full bundle is queued and
+	 * a new one started. If the queue is full the message is dropped.
+	 * @param messagePrefix Encoded address and type tags from OscOutPort.getMessagePrefix().
+	 * @param timetag NTP timetag of the bundle.
+	 */
+	void add ( byte [ ] messagePrefix, int argument0, int argument1, int argument2, int argument3, long timetag )
+	{
+		int size = messagePrefix.length + 16;
+		if ( _bundle != null && _bundle.remaining ( ) < size + 4 )
+		{
+			flush ( );
+		}
+
+		if ( _bundle == null )
+		{
+			long tail = _tail;
+			if ( tail - _head == NUM_SLOTS )
+			{
+				_numDropped++;
+				return;
+			}
+
+			_bundle = _slots[ ( int ) ( tail & SLOT_MASK ) ];
+			_bundle.clear ( );
+			_bundle.put ( BUNDLE_TAG );
+			_bundle.putLong ( 0 );
+			_timetag = timetag;
+		}
+
+		_bundle.putInt ( size );
+		_bundle.put ( messagePrefix );
+		_bundle.putInt ( argument0 );
+		_bundle.putInt ( argument1 );
+		_bundle.putInt ( argument2 );
+		_bundle.putInt ( argument3 );
+	}
+
+	/**
+	 * Queue the bundle being encoded and wake the sender.
+	 */
+	void flush ( )
+	{
+		if ( _bundle == null )
+		{
+			return;
+		}
+
+		_bundle.putLong ( TIMETAG_INDEX, _timetag );
+		_bundle.flip ( );
+		_bundle = null;
+
+		long tail = _tail;
+		_enqueueTimes[ ( int ) ( tail & SLOT_MASK ) ] = System.nanoTime ( );
+		_tail = tail + 1;
+
+		if ( _isWaiting )
+		{
+			LockSupport.unpark ( _sender );
+		}
+	}
+
+	/**
+	 * Mark the target as chosen for a message, so a message that matches
+	 * several routes to the same target is added only once.
+	 * @return False if the target was already marked for this message.
+	 */
+	boolean mark ( long messageID )
+	{
+		if ( _mark == messageID )
+		{
+			return false;
+		}
+		_mark = messageID;
+		return true;
+	}
+
+	/**
+	 * Sender thread: send the queued bundles in order.
+	 */
+	public void run ( )
+	{
+		while ( _isActive )
+		{
+			long head = _head;
+			if ( head == _tail )
+			{
+				/** Nothing queued, wait for flush() to wake the thread. */
+				_isWaiting = true;
+				if ( head == _tail && _isActive )
+				{
+					LockSupport.park ( this );
+				}
+				_isWaiting = false;
+				continue;
+			}
+
+			int index = ( int ) ( head & SLOT_MASK );
+			try
+			{
+				_channel.write ( _slots[ index ] );
+				_numSent++;
+			}
+			catch ( IOException exception )
+			{
+				/** Nobody listens on the port, or the host can't be reached. */
+				_numFailed++;
+			}
+
+			long latency = System.nanoTime ( ) - _enqueueTimes[ index ];
+			_latency = latency;
+			if ( latency > _maximumLatency )
+			{
+				_maximumLatency = latency;
+			}
+
+			_head = head + 1;
+		}
+
+		try
+		{
+			_channel.close ( );
+		}
+		catch ( IOException exception )
+		{
+			System.out.println ( "OscTarget.run() IOException: " + exception.getMessage ( ) );
+		}
+	}
+
+	/**
+	 * Stop the sender thread, bundles still in the queue are not sent.
+	 */
+	public void close ( )
+	{
+		_isActive = false;
+		LockSupport.unpark ( _sender );
+	}
+
+	public InetSocketAddress getAddress ( )
+	{
+		return _address;
+	}
+
+	/**
+	 * @return Bundles sent.
+	 */
+	public long getNumSent ( )
+	{
+		return _numSent;
+	}
+
+	/**
+	 * @return Messages dropped because the queue was full.
+	 */
+	public long getNumDropped ( )
+	{
+		return _numDropped;
+	}
+
+	/**
+	 * @return Bundles the network refused, for example because nobody listens.
+	 */
+	public long getNumFailed ( )
+	{
+		return _numFailed;
+	}
+
+	/**
+	 * @return Nanoseconds the last bundle waited in the queue.
+	 */
+	public long getLatency ( )
+	{
+		return _latency;
+	}
+
+	/**
+	 * @return Longest time in nanoseconds a bundle waited in the queue.
+	 */
+	public long getMaximumLatency ( )
+	{
+		return _maximumLatency;
+	}
+
+	@Override public String toString ( )
+	{
+		return _address.getHostString ( ) + ":" + _address.getPort ( ) + " sent " + _numSent + ", dropped " + _numDropped + ", failed " + _numFailed + ", latency " + ( _latency / 1000 ) + "us, max " + ( _maximumLatency / 1000 ) + "us";
+	}
+}
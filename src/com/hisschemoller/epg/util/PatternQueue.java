@@ -0,0 +1,106 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import com.hisschemoller.epg.model.data.PatternVO;
+
+/**
+ * Priority queue of patterns ordered by the pulse of their next note, so the
+ * sequencer only looks at the patterns that are due. A binary heap in an
+ * array that grows as needed and is reused, so the clock thread doesn't
+ * allocate once it has grown to the size of the project.
+ */
+public class PatternQueue
+{
+	private PatternVO [ ] _heap = new PatternVO[ 16 ];
+	private int _size = 0;
+
+	public void clear ( )
+	{
+		while ( _size > 0 )
+		{
+			_heap[ --_size ] = null;
+		}
+	}
+
+	public int size ( )
+	{
+		return _size;
+	}
+
+	/**
+	 * @return Pattern with the earliest next note, null if the queue is empty.
+	 */
+	public PatternVO peek ( )
+	{
+		return _size > 0 ? _heap[ 0 ] : null;
+	}
+
+	public void add ( PatternVO patternVO )
+	{
+		if ( _size == _heap.length )
+		{
+			PatternVO [ ] heap = new PatternVO[ _size * 2 ];
+			System.arraycopy ( _heap, 0, heap, 0, _size );
+			_heap = heap;
+		}
+
+		/** Sift up. */
+		int index = _size++;
+		while ( index > 0 )
+		{
+			int parent = ( index - 1 ) >> 1;
+			if ( _heap[ parent ].nextHitPulse <= patternVO.nextHitPulse )
+			{
+				break;
+			}
+			_heap[ index ] = _heap[ parent ];
+			index = parent;
+		}
+		_heap[ index ] = patternVO;
+	}
+
+	/**
+	 * Restore the order after the next note of the first pattern has moved
+	 * to a later pulse.
+	 */
+	public void updateFirst ( )
+	{
+		PatternVO patternVO = _heap[ 0 ];
+		int index = 0;
+		int half = _size >> 1;
+		while ( index < half )
+		{
+			int child = ( index << 1 ) + 1;
+			if ( child + 1 < _size && _heap[ child + 1 ].nextHitPulse < _heap[ child ].nextHitPulse )
+			{
+				child++;
+			}
+			if ( patternVO.nextHitPulse <= _heap[ child ].nextHitPulse )
+			{
+				break;
+			}
+			_heap[ index ] = _heap[ child ];
+			index = child;
+		}
+		_heap[ index ] = patternVO;
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for an absolute System.nanoTime() deadline. The thread parks for most
+ * of the wait and spins only for a short window before the deadline. The spin
+ * window follows the wake-up latency measured on each park, so it stays small
+ * on a quiet system and grows when the OS scheduler is late.
+ * 
+ * A park that returns early is parked again, so the thread only spins in the
+ * window. This means unpark() doesn't end the wait, the deadline does.
+ */
+public class PrecisionTimer
+{
+	private static final long MINIMUM_SPIN_WINDOW = 20000l;
+	private static final long MAXIMUM_SPIN_WINDOW = 1000000l;
+	private long _latency = 100000l;
+
+	/**
+	 * Block until the deadline has passed.
+	 * @param deadline Time in System.nanoTime() nanoseconds.
+	 * @return Nanoseconds the deadline was missed by, 0 or more.
+	 */
+	public long waitUntil ( long deadline )
+	{
+		long spinStart = deadline - getSpinWindow ( );
+		long now = System.nanoTime ( );
+
+		/** Park again after an early return, from unpark() or a spurious wake-up. */
+		while ( now < spinStart )
+		{
+			long parkTime = spinStart - now;
+			LockSupport.parkNanos ( this, parkTime );
+			long wakeTime = System.nanoTime ( );
+
+			/** Only a park that ran its full time measures the latency. */
+			long latency = wakeTime - ( now + parkTime );
+			if ( latency >= 0 )
+			{
+				updateLatency ( latency );
+			}
+			now = wakeTime;
+		}
+
+		/** Spin the last stretch. */
+		while ( now < deadline )
+		{
+			now = System.nanoTime ( );
+		}
+
+		return now - deadline;
+	}
+
+	/**
+	 * Nanoseconds before the deadline at which parking stops and spinning
+	 * starts.
+	 */
+	public long getSpinWindow ( )
+	{
+		return Math.max ( MINIMUM_SPIN_WINDOW, Math.min ( MAXIMUM_SPIN_WINDOW, _latency + ( _latency >> 1 ) ) );
+	}
+
+	/**
+	 * Follow a late wake-up immediately, recover slowly from it.
+	 */
+	private void updateLatency ( long latency )
+	{
+		if ( latency > _latency )
+		{
+			_latency = Math.min ( latency, MAXIMUM_SPIN_WINDOW );
+		}
+		else
+		{
+			_latency += ( latency - _latency ) >> 4;
+		}
+	}
+}
@@ -31,6 +31,7 @@ import com.hisschemoller.epg.view.components.MainWindow;
 public class MainWindowMediator extends Mediator
 {
 	public static final String NAME = MainWindowMediator.class.getName ( );
+	private String _title = "";
 
 	public MainWindowMediator ( Object viewComponent )
 	{
@@ -39,8 +40,9 @@ public class MainWindowMediator extends Mediator
 
 	public String [ ] listNotificationInterests ( )
 	{
-		String [ ] interests = new String[ 1 ];
+		String [ ] interests = new String[ 2 ];
 		interests[ 0 ] = SeqNotifications.PROJECT_FILE_UPDATED;
+		interests[ 1 ] = SeqNotifications.PROJECT_LOAD_PROGRESS;
 		return interests;
 	}
 
@@ -49,7 +51,14 @@ public class MainWindowMediator extends Mediator
 		String name = note.getName ( );
 		if ( name == SeqNotifications.PROJECT_FILE_UPDATED )
 		{
-			getView ( ).setTitle ( ( String ) note.getBody ( ) );
+			_title = ( String ) note.getBody ( );
+			getView ( ).setTitle ( _title );
+		}
+		else if ( name == SeqNotifications.PROJECT_LOAD_PROGRESS )
+		{
+			/** Show the progress in the title bar until loading is done. */
+			float progress = ( Float ) note.getBody ( );
+			getView ( ).setTitle ( progress < 1 ? _title + " - Loading " + note.getType ( ) + " " + Math.round ( progress * 100 ) + "%" : _title );
 		}
 	}
 
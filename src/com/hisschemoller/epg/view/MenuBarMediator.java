@@ -69,6 +69,10 @@ public class MenuBarMediator extends Mediator implements ActionListener
 		{
 			sendNotification ( SeqNotifications.SAVE_PROJECT_AS );
 		}
+		else if ( command == MenuBar.EXPORT_MIDI_FILE )
+		{
+			sendNotification ( SeqNotifications.EXPORT_MIDI_FILE );
+		}
 		else if ( command == MenuBar.HELP )
 		{
 			sendNotification ( SeqNotifications.SHOW_HELP );
@@ -23,11 +23,10 @@ package com.hisschemoller.epg.view;
 import org.puremvc.java.multicore.interfaces.INotification;
 import org.puremvc.java.multicore.patterns.mediator.Mediator;
 
+import com.hisschemoller.epg.model.SequencerProxy;
 import com.hisschemoller.epg.model.data.EPGEnums;
 import com.hisschemoller.epg.model.data.PatternVO;
 import com.hisschemoller.epg.notification.SeqNotifications;
-import com.hisschemoller.epg.notification.note.PatternPositionNote;
-import com.hisschemoller.epg.notification.note.PatternSequenceNote;
 import com.hisschemoller.epg.util.EPGSwingEngine;
 import com.hisschemoller.epg.view.components.Pattern;
 import com.hisschemoller.epg.view.components.PatternCanvas;
@@ -37,6 +36,7 @@ import com.hisschemoller.epg.view.events.ViewEvent;
 public class PatternCanvasMediator extends Mediator implements IViewEventListener
 {
 	public static final String NAME = PatternCanvasMediator.class.getName ( );
+	private SequencerProxy _sequencerProxy;
 
 	public PatternCanvasMediator ( Object viewComponent )
 	{
@@ -46,30 +46,22 @@ public class PatternCanvasMediator extends Mediator implements IViewEventListene
 	public String [ ] listNotificationInterests ( )
 	{
 		String [ ] interests = new String[ 10 ];
-		interests[ 0 ] = SeqNotifications.REDRAW;
-		interests[ 1 ] = SeqNotifications.PATTERN_SEQUENCE_UPDATED;
-		interests[ 2 ] = SeqNotifications.PATTERN_SETTINGS_UPDATED;
-		interests[ 3 ] = SeqNotifications.PATTERN_LOCATION_UPDATED;
-		interests[ 4 ] = SeqNotifications.SELECT_PATTERN;
-		interests[ 5 ] = SeqNotifications.PATTERN_CREATED;
-		interests[ 6 ] = SeqNotifications.PATTERN_DELETED;
-		interests[ 7 ] = SeqNotifications.PATTERN_NAME_UPDATED;
-		interests[ 8 ] = SeqNotifications.PLAYBACK_CHANGED;
-		interests[ 9 ] = SeqNotifications.PATTERN_POINTER_UPDATED;
+		interests[ 0 ] = SeqNotifications.PATTERN_SETTINGS_UPDATED;
+		interests[ 1 ] = SeqNotifications.PATTERN_LOCATION_UPDATED;
+		interests[ 2 ] = SeqNotifications.SELECT_PATTERN;
+		interests[ 3 ] = SeqNotifications.PATTERN_CREATED;
+		interests[ 4 ] = SeqNotifications.PATTERN_DELETED;
+		interests[ 5 ] = SeqNotifications.PATTERN_NAME_UPDATED;
+		interests[ 6 ] = SeqNotifications.PLAYBACK_CHANGED;
+		interests[ 7 ] = SeqNotifications.PATTERN_POINTER_UPDATED;
+		interests[ 8 ] = SeqNotifications.SINGLE_SURFACE_CANVAS_ENABLED;
+		interests[ 9 ] = SeqNotifications.CLOCK_SOURCE_UPDATED;
 		return interests;
 	}
 
 	public void handleNotification ( INotification note )
 	{
-		if ( note.getName ( ) == SeqNotifications.REDRAW )
-		{
-			getView ( ).updatePatternPositions ( ( PatternPositionNote [ ] ) note.getBody ( ) );
-		}
-		else if ( note.getName ( ) == SeqNotifications.PATTERN_SEQUENCE_UPDATED )
-		{
-			getView ( ).updatePatternSequence ( ( PatternSequenceNote ) note.getBody ( ) );
-		}
-		else if ( note.getName ( ) == SeqNotifications.PATTERN_SETTINGS_UPDATED )
+		if ( note.getName ( ) == SeqNotifications.PATTERN_SETTINGS_UPDATED )
 		{
 			getView ( ).updatePattern ( ( PatternVO ) note.getBody ( ), Pattern.Operation.CHANGE );
 		}
@@ -101,11 +93,22 @@ public class PatternCanvasMediator extends Mediator implements IViewEventListene
 		{
 			getView ( ).updatePattern ( ( PatternVO ) note.getBody ( ), Pattern.Operation.POINTER );
 		}
+		else if ( note.getName ( ) == SeqNotifications.SINGLE_SURFACE_CANVAS_ENABLED )
+		{
+			getView ( ).setSingleSurface ( ( Boolean ) note.getBody ( ) );
+		}
+		else if ( note.getName ( ) == SeqNotifications.CLOCK_SOURCE_UPDATED )
+		{
+			getView ( ).updateClockSource ( ( EPGEnums.ClockSourceType ) note.getBody ( ) );
+		}
 	}
 
 	@Override public final void onRegister ( )
 	{
 		super.onRegister ( );
+
+		/** The sequencer publishes its pulse count and played notes, the canvas reads them each frame. */
+		_sequencerProxy = ( SequencerProxy ) getFacade ( ).retrieveProxy ( SequencerProxy.NAME );
 		
 		EPGSwingEngine swingEngine = ( EPGSwingEngine ) viewComponent;
 		PatternCanvas editor = new PatternCanvas ( swingEngine );
@@ -128,6 +131,11 @@ public class PatternCanvasMediator extends Mediator implements IViewEventListene
 		case ViewEvent.PATTERN_CENTER_PRESS:
 			sendNotification ( SeqNotifications.OPEN_PATTERN_SETTINGS, getView ( ).getPatternUnderMouseID ( ) );
 			break;
+
+		case ViewEvent.REDRAW:
+			_sequencerProxy.getNoteEvents ( ).drain ( getView ( ) );
+			getView ( ).updatePatternPositions ( _sequencerProxy.getPulse ( ) );
+			break;
 		}
 	}
 
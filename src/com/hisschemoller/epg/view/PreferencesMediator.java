@@ -44,7 +44,7 @@ public class PreferencesMediator extends Mediator implements IViewEventListener
 
 	public String [ ] listNotificationInterests ( )
 	{
-		String [ ] interests = new String[ 11 ];
+		String [ ] interests = new String[ 13 ];
 		interests[ 0 ] = SeqNotifications.MIDI_DEVICES_UPDATED;
 		interests[ 1 ] = SeqNotifications.MIDI_IN_DEVICE_ENABLED;
 		interests[ 2 ] = SeqNotifications.MIDI_IN_DEVICE_OPENED;
@@ -56,6 +56,8 @@ public class PreferencesMediator extends Mediator implements IViewEventListener
 		interests[ 8 ] = SeqNotifications.OSC_OUT_PORT_UPDATED;
 		interests[ 9 ] = SeqNotifications.DISPLAY_MIDI_NOTE_NAMES_ENABLED;
 		interests[ 10 ] = SeqNotifications.RELOAD_LAST_PROJECT_ENABLED;
+		interests[ 11 ] = SeqNotifications.SINGLE_SURFACE_CANVAS_ENABLED;
+		interests[ 12 ] = SeqNotifications.OSC_ROUTES_UPDATED;
 		return interests;
 	}
 
@@ -98,6 +100,10 @@ public class PreferencesMediator extends Mediator implements IViewEventListener
 		{
 			getView ( ).updateOscOutPort ( ( Integer ) note.getBody ( ) );
 		}
+		else if ( name == SeqNotifications.OSC_ROUTES_UPDATED )
+		{
+			getView ( ).updateOscRoutes ( ( String ) note.getBody ( ) );
+		}
 		else if ( name == SeqNotifications.DISPLAY_MIDI_NOTE_NAMES_ENABLED )
 		{
 			getView ( ).setDisplayMidiNoteNamesSelected ( ( Boolean ) note.getBody ( ) );
@@ -106,6 +112,10 @@ public class PreferencesMediator extends Mediator implements IViewEventListener
 		{
 			getView ( ).setReloadLastOpenedProjectSelected ( ( Boolean ) note.getBody ( ) );
 		}
+		else if ( name == SeqNotifications.SINGLE_SURFACE_CANVAS_ENABLED )
+		{
+			getView ( ).setSingleSurfaceCanvasSelected ( ( Boolean ) note.getBody ( ) );
+		}
 	}
 
 	@Override public final void onRegister ( )
@@ -154,6 +164,10 @@ public class PreferencesMediator extends Mediator implements IViewEventListener
 			sendNotification ( SeqNotifications.UPDATE_OSC_OUT_PORT, Integer.parseInt ( ( ( JTextField ) event.getSource ( ) ).getText ( ) ) );
 			break;
 
+		case ViewEvent.OSC_OUT_ROUTES_CHANGE:
+			sendNotification ( SeqNotifications.UPDATE_OSC_ROUTES, getView ( ).getOscRoutes ( ) );
+			break;
+
 		case ViewEvent.USE_MIDI_NOTE_NAMES_SELECT:
 			sendNotification ( SeqNotifications.ENABLE_DISPLAY_MIDI_NOTE_NAMES, ( ( JCheckBox ) event.getSource ( ) ).isSelected ( ) );
 			break;
@@ -162,6 +176,10 @@ public class PreferencesMediator extends Mediator implements IViewEventListener
 			sendNotification ( SeqNotifications.ENABLE_RELOAD_LAST_PROJECT, ( ( JCheckBox ) event.getSource ( ) ).isSelected ( ) );
 			break;
 
+		case ViewEvent.SINGLE_SURFACE_CANVAS_SELECT:
+			sendNotification ( SeqNotifications.ENABLE_SINGLE_SURFACE_CANVAS, ( ( JCheckBox ) event.getSource ( ) ).isSelected ( ) );
+			break;
+
 		case ViewEvent.CLOSE_PREFERENCES:
 			sendNotification ( SeqNotifications.HIDE_PREFERENCES );
 			break;
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.view.components;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import javax.swing.Timer;
+
+/**
+ * One clock for the animations of all patterns. It ticks on the event
+ * dispatch thread, advances the animations of the patterns that have any to
+ * the time of the tick, and then lets the canvas draw the frame.
+ * 
+ * Animations are timed by System.nanoTime(), so they run at the same speed
+ * however often frames are painted. A pattern is only advanced while it has
+ * an animation running. The clock stops when no animation runs, the
+ * sequencer doesn't play and the last frame didn't ask for another.
+ */
+public class AnimationClock implements ActionListener
+{
+	/** Milliseconds between frames. */
+	public static final int FRAME_INTERVAL = 35;
+	/** Nanoseconds each picture of a frame based animation shows. */
+	public static final long FRAME_TIME = FRAME_INTERVAL * 1000000l;
+	private Timer _timer;
+	private ActionListener _frameListener;
+	private HashSet < Pattern > _animatedPatterns = new HashSet < Pattern > ( );
+	private boolean _isContinuous = false;
+	private boolean _isFrameRequested = false;
+	private long _time = System.nanoTime ( );
+
+	/**
+	 * @param frameListener Called on each tick to draw the frame.
+	 */
+	public AnimationClock ( ActionListener frameListener )
+	{
+		_frameListener = frameListener;
+		_timer = new Timer ( FRAME_INTERVAL, this );
+	}
+
+	/**
+	 * Advance the animations of a pattern from the next tick on, until they
+	 * have all ended.
+	 */
+	public void animate ( Pattern pattern )
+	{
+		_animatedPatterns.add ( pattern );
+		requestFrame ( );
+	}
+
+	public void remove ( Pattern pattern )
+	{
+		_animatedPatterns.remove ( pattern );
+	}
+
+	/**
+	 * Draw at least one more frame.
+	 */
+	public void requestFrame ( )
+	{
+		_isFrameRequested = true;
+		if ( !_timer.isRunning ( ) )
+		{
+			_timer.start ( );
+		}
+	}
+
+	/**
+	 * @param isContinuous True to keep ticking, while the pointers move.
+	 */
+	public void setContinuous ( boolean isContinuous )
+	{
+		_isContinuous = isContinuous;
+		requestFrame ( );
+	}
+
+	/**
+	 * @return System.nanoTime() of the current frame.
+	 */
+	public long getTime ( )
+	{
+		return _time;
+	}
+
+	public void actionPerformed ( ActionEvent event )
+	{
+		_time = System.nanoTime ( );
+		_isFrameRequested = false;
+
+		Iterator < Pattern > iterator = _animatedPatterns.iterator ( );
+		while ( iterator.hasNext ( ) )
+		{
+			if ( !iterator.next ( ).updateAnimations ( _time ) )
+			{
+				iterator.remove ( );
+			}
+		}
+
+		_frameListener.actionPerformed ( event );
+
+		if ( !_isContinuous && !_isFrameRequested && _animatedPatterns.isEmpty ( ) )
+		{
+			_timer.stop ( );
+		}
+	}
+}
@@ -37,6 +37,7 @@ public class MenuBar extends JMenuBar
 	public static final String OPEN = "MenuBar.OPEN";
 	public static final String SAVE = "MenuBar.SAVE";
 	public static final String SAVE_AS = "MenuBar.SAVE_AS";
+	public static final String EXPORT_MIDI_FILE = "MenuBar.EXPORT_MIDI_FILE";
 	public static final String QUIT = "MenuBar.QUIT";
 	public static final String HELP = "MenuBar.HELP";
 	public static final String PREFERENCES = "MenuBar.PREFERENCES";
@@ -70,6 +71,12 @@ public class MenuBar extends JMenuBar
 		menuItem.setActionCommand ( SAVE_AS );
 		menuItem.setAccelerator ( KeyStroke.getKeyStroke ( KeyEvent.VK_S, shortcut | InputEvent.SHIFT_DOWN_MASK ) );
 		_fileMenu.add ( menuItem );
+		_fileMenu.addSeparator ( );
+		menuItem = new JMenuItem ( "Export MIDI File..." );
+		menuItem.addActionListener ( actionListener );
+		menuItem.setActionCommand ( EXPORT_MIDI_FILE );
+		menuItem.setAccelerator ( KeyStroke.getKeyStroke ( KeyEvent.VK_E, shortcut ) );
+		_fileMenu.add ( menuItem );
 		
 		JMenu editMenu = new JMenu ( "Edit" );
 		add ( editMenu );
@@ -23,26 +23,29 @@ package com.hisschemoller.epg.view.components;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.LayoutManager;
+import java.awt.Rectangle;
 import java.util.UUID;
 
-import javax.sound.midi.MidiEvent;
 import javax.swing.JPanel;
 
+import com.hisschemoller.epg.model.data.PatternSnapshot;
 import com.hisschemoller.epg.model.data.PatternVO;
-import com.hisschemoller.epg.notification.note.PatternSequenceNote;
+import com.hisschemoller.epg.util.HitTable;
 
-public class Pattern extends JPanel implements Runnable
+public class Pattern extends JPanel
 {
 	public static final long serialVersionUID = -1L;
 	public static final int PANEL_SIZE = 200;
 	private static final float DOUBLE_PI = ( float ) Math.PI * 2;
+	/** Nanoseconds the startup animation of a new pattern takes. */
+	private static final long STARTUP_DURATION = 400000000l;
 	private UUID _id;
+	private PatternVO _patternVO;
 	private PatternPainter _painter;
 	private int _rotation = -1;
 	private int _numSteps;
-	private float _tweenPosition = 0;
-	private float _tweenDuration = 1;
-	private float _tweenIncrease = 0.1f;
+	private long _startupTime;
+	private boolean _isStartupAnimating = false;
 	private float _position;
 
 	public enum Operation
@@ -77,24 +80,12 @@ public class Pattern extends JPanel implements Runnable
 		{
 		case CHANGE:
 
-			/** Pattern change. */
+			/** Pattern change. The steps that play are those in the published hit table, rotation applied. */
+			long [ ] hitTable = patternVO.snapshot.hitTable;
 			Boolean [ ] selections = new Boolean[ patternVO.steps ];
 			for ( int i = 0; i < patternVO.steps; i++ )
 			{
-				/** Check if the step is selected. */
-				Boolean selected = false;
-				int stepIndexRotationCorrected = ( i + patternVO.rotation ) % patternVO.steps;
-				int m = patternVO.events.size ( );
-				while ( --m > -1 )
-				{
-					MidiEvent midiEvent = patternVO.events.get ( m );
-					if ( midiEvent.getTick ( ) / patternVO.stepLength == stepIndexRotationCorrected )
-					{
-						selected = true;
-						break;
-					}
-				}
-				selections[ i ] = selected;
+				selections[ i ] = HitTable.isHit ( hitTable, i );
 			}
 
 			_painter.setPattern ( selections );
@@ -138,44 +129,74 @@ public class Pattern extends JPanel implements Runnable
 	}
 
 	/**
-	 * Each sequencer pulse these values are updated. _position is as part of
-	 * full rotation normalized (0 to 1).
+	 * Pointer position from the sequencer's pulse count, as part of a full
+	 * rotation normalized (0 to 1). The start pulse and length are the ones
+	 * the clock thread is playing.
 	 */
-	public void updatePosition ( float position )
+	public void updatePosition ( long pulse )
 	{
-		_position = position;
+		PatternSnapshot snapshot = _patternVO.playedSnapshot;
+		if ( snapshot != null )
+		{
+			_position = Math.floorMod ( pulse - _patternVO.startPulse, ( long ) snapshot.patternLength ) / ( float ) snapshot.patternLength;
+		}
 	}
 
 	/**
 	 * The editor has it's own screen update timer, independent from the
 	 * sequencer pulse.
+	 * @param viewRect Visible part of the canvas.
+	 * @return True if the pattern changed and must be repainted.
 	 */
-	public void updateDraw ( )
+	public boolean updateDraw ( Rectangle viewRect )
 	{
+		_painter.setVisibleBounds ( viewRect.x - getX ( ), viewRect.y - getY ( ), viewRect.width, viewRect.height );
 		_painter.setPointerRotation ( ( float ) Math.PI + ( DOUBLE_PI * _position ) );
+		return _painter.isRepaintNeeded ( );
 	}
 
 	/**
-	 * Show the MIDI note that is played.
+	 * Advance the startup, step and note animations. Called by AnimationClock.
+	 * @param time System.nanoTime() of the frame.
+	 * @return True while any animation runs.
 	 */
-	public void updateSequence ( PatternSequenceNote note )
+	public boolean updateAnimations ( long time )
 	{
-		// Fast user generated UI updates may conflict with clock generated updates,
-		// resulting in the rotation being larger than the number of steps in a pattern.
-		// This is kept within limits here.
-		if ( _rotation > _numSteps )
+		if ( _isStartupAnimating )
 		{
-			_rotation %= _numSteps;
+			float position = Math.min ( 1f, ( time - _startupTime ) / ( float ) STARTUP_DURATION );
+			_painter.updateStartupAnimation ( position );
+			_isStartupAnimating = position < 1;
 		}
-		
-		int stepIndexRotationCorrected = note.stepIndex - _rotation;
 
-		if ( stepIndexRotationCorrected < 0 )
-		{
-			stepIndexRotationCorrected += _numSteps;
-		}
+		boolean isAnimating = _painter.updateAnimations ( time );
+		return isAnimating || _isStartupAnimating;
+	}
+
+	/**
+	 * @param bounds Set to the part of the pattern that changed since it was last painted.
+	 */
+	public void getRepaintBounds ( Rectangle bounds )
+	{
+		_painter.getRepaintBounds ( bounds );
+	}
 
-		_painter.setPlayedNote ( note.midiStatus, stepIndexRotationCorrected );
+	/**
+	 * Remember a MIDI note that is played, showPlayedNotes() shows it.
+	 * @return True for the first note since the last frame.
+	 */
+	public boolean updateSequence ( int midiStatus, int stepIndex )
+	{
+		return _painter.setPlayedNote ( midiStatus, stepIndex );
+	}
+
+	/**
+	 * Show the notes played since the last frame.
+	 * @param time System.nanoTime() at which the animations start.
+	 */
+	public void showPlayedNotes ( long time )
+	{
+		_painter.showPlayedNotes ( time );
 	}
 
 	public void select ( Boolean isSelected )
@@ -188,27 +209,6 @@ public class Pattern extends JPanel implements Runnable
 		return _id;
 	}
 
-	public void run ( )
-	{
-		while ( true )
-		{
-			try
-			{
-				_tweenPosition += _tweenIncrease;
-				_painter.updateStartupAnimation ( _tweenPosition );
-				if ( _tweenPosition >= _tweenDuration )
-				{
-					break;
-				}
-				Thread.sleep ( 40 );
-			}
-			catch ( InterruptedException exception )
-			{
-				System.out.println ( "InterruptedException: PatternStep animation thread interrupted." );
-			}
-		}
-	}
-
 	public void paintComponent ( Graphics graphics )
 	{
 		super.paintComponent ( graphics );
@@ -218,6 +218,7 @@ public class Pattern extends JPanel implements Runnable
 	private void setup ( PatternVO patternVO, Boolean isAnimated )
 	{
 		_id = patternVO.id;
+		_patternVO = patternVO;
 
 		_painter = new PatternPainter ( this );
 
@@ -231,9 +232,12 @@ public class Pattern extends JPanel implements Runnable
 		updatePattern ( patternVO, Operation.NAME );
 		updatePattern ( patternVO, Operation.POINTER );
 
+		/** The canvas has AnimationClock run the startup animation. */
 		if ( isAnimated )
 		{
-			new Thread ( this ).start ( );
+			_startupTime = System.nanoTime ( );
+			_isStartupAnimating = true;
+			_painter.updateStartupAnimation ( 0 );
 		}
 	}
 }
@@ -28,35 +28,58 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.UUID;
 import java.util.Vector;
 
+import javax.sound.midi.ShortMessage;
 import javax.swing.JPanel;
 import javax.swing.JViewport;
-import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 import org.swixml.XScrollPane;
 
 import com.hisschemoller.epg.model.data.EPGEnums;
+import com.hisschemoller.epg.model.data.EPGEnums.ClockSourceType;
 import com.hisschemoller.epg.model.data.PatternVO;
-import com.hisschemoller.epg.notification.note.PatternPositionNote;
-import com.hisschemoller.epg.notification.note.PatternSequenceNote;
 import com.hisschemoller.epg.util.EPGSwingEngine;
+import com.hisschemoller.epg.util.INoteEventListener;
 import com.hisschemoller.epg.view.events.IViewEventListener;
 import com.hisschemoller.epg.view.events.ViewEvent;
 
-public class PatternCanvas implements MouseListener, MouseMotionListener, ActionListener
+/**
+ * Canvas with all patterns. Patterns are either each a component of the
+ * canvas panel, or all drawn on one PatternSurface. A PatternGrid finds the
+ * pattern under the mouse and the patterns in view, only those are animated
+ * and repainted. Frames are drawn on the ticks of an AnimationClock.
+ */
+public class PatternCanvas implements MouseListener, MouseMotionListener, ActionListener, ChangeListener, INoteEventListener
 {
 	public static final long serialVersionUID = -1L;
+	/** Distance from a pattern's center within which a mouse press selects it. */
+	private static final int CENTER_HIT_RADIUS = 20;
 	private Vector < IViewEventListener > _viewEventListeners = new Vector < IViewEventListener > ( );
 	private Vector < Pattern > _patterns = new Vector < Pattern > ( );
+	private HashMap < UUID, Pattern > _patternsByID = new HashMap < UUID, Pattern > ( );
+	private PatternGrid _grid = new PatternGrid ( );
+	private PatternSurface _surface = new PatternSurface ( _grid );
+	private boolean _isSingleSurface = false;
+	private ArrayList < Pattern > _visiblePatterns = new ArrayList < Pattern > ( );
+	/** Patterns that played notes since the last frame. */
+	private ArrayList < Pattern > _playedPatterns = new ArrayList < Pattern > ( );
+	private Rectangle _viewRect = new Rectangle ( );
 	private Pattern _patternUnderMouse;
 	private PatternVO _patternChangesVO;
 	private JPanel _panel;
 	private JViewport _viewport;
-	private Timer _timer;
+	private AnimationClock _clock;
+	private boolean _isPlaying = false;
+	private boolean _isExternalClock = false;
 	private Point _dragOffset = new Point ( 0, 0 );
 	private Point _dragScrollOffset = new Point ( 0, 0 );
+	private Rectangle _repaintBounds = new Rectangle ( );
 
 	public PatternCanvas ( )
 	{
@@ -71,53 +94,64 @@ public class PatternCanvas implements MouseListener, MouseMotionListener, Action
 		_panel.addMouseMotionListener ( this );
 
 		_viewport = ( ( XScrollPane ) swingEngine.find ( "CANVAS_SCROLLPANE" ) ).getViewport ( );
+		_viewport.addChangeListener ( this );
 
-		_timer = new Timer ( 35, this );
-		_timer.start ( );
+		_clock = new AnimationClock ( this );
+		_clock.requestFrame ( );
 	}
 
 	public void addPattern ( PatternVO patternVO, Boolean isAnimated )
 	{
 		Pattern pattern = new Pattern ( patternVO, isAnimated );
-		_panel.add ( pattern );
+		if ( !_isSingleSurface )
+		{
+			_panel.add ( pattern );
+		}
 		_patterns.add ( pattern );
-		_panel.repaint ( pattern.getBounds ( ) );
+		_patternsByID.put ( patternVO.id, pattern );
+		_grid.add ( pattern );
+		repaintPattern ( pattern );
 		validatePanel ( );
+
+		if ( isAnimated )
+		{
+			_clock.animate ( pattern );
+		}
+		_clock.requestFrame ( );
 	}
 
 	public void updatePattern ( PatternVO patternVO, Pattern.Operation operation )
 	{
-		int n = _patterns.size ( );
-		while ( --n > -1 )
+		Pattern pattern = _patternsByID.get ( patternVO.id );
+		if ( pattern == null )
 		{
-			Pattern pattern = _patterns.get ( n );
-			if ( pattern.getID ( ) == patternVO.id )
-			{
-				pattern.updatePattern ( patternVO, operation );
-				if ( operation == Pattern.Operation.LOCATION )
-				{
-					validatePanel ( );
-				}
-				break;
-			}
+			return;
+		}
+
+		if ( operation == Pattern.Operation.LOCATION )
+		{
+			setPatternLocation ( pattern, patternVO.viewX, patternVO.viewY );
+			validatePanel ( );
+		}
+		else
+		{
+			pattern.updatePattern ( patternVO, operation );
+			_clock.requestFrame ( );
 		}
 	}
 
 	public void deletePattern ( PatternVO patternVO )
 	{
-		int n = _patterns.size ( );
-		while ( --n > -1 )
+		Pattern pattern = _patternsByID.remove ( patternVO.id );
+		if ( pattern != null )
 		{
-			Pattern pattern = _patterns.get ( n );
-			if ( pattern.getID ( ) == patternVO.id )
-			{
-				_panel.remove ( pattern );
-				pattern.dispose ( );
-				_patterns.remove ( n );
-				_panel.repaint ( pattern.getBounds ( ) );
-				validatePanel ( );
-				break;
-			}
+			_panel.remove ( pattern );
+			pattern.dispose ( );
+			_patterns.remove ( pattern );
+			_grid.remove ( pattern );
+			_clock.remove ( pattern );
+			repaintPattern ( pattern );
+			validatePanel ( );
 		}
 	}
 
@@ -131,52 +165,86 @@ public class PatternCanvas implements MouseListener, MouseMotionListener, Action
 				Pattern pattern = _patterns.get ( n );
 				pattern.select ( pattern.getID ( ) == patternVO.id );
 			}
+			_clock.requestFrame ( );
 		}
 	}
 
 	/**
-	 * Update pointer position on all patterns.
+	 * Switch between drawing each pattern as a component of its own and
+	 * drawing all patterns on one surface.
 	 */
-	public void updatePatternPositions ( PatternPositionNote [ ] positionNotes )
+	public void setSingleSurface ( boolean isSingleSurface )
 	{
-		int m = positionNotes.length;
-		int n = _patterns.size ( );
-		while ( --n > -1 )
+		if ( isSingleSurface == _isSingleSurface )
 		{
-			Pattern pattern = _patterns.get ( n );
-			while ( --m > -1 )
+			return;
+		}
+
+		_isSingleSurface = isSingleSurface;
+		_panel.removeAll ( );
+		if ( _isSingleSurface )
+		{
+			_panel.add ( _surface );
+		}
+		else
+		{
+			for ( int i = 0; i < _patterns.size ( ); i++ )
 			{
-				if ( pattern.getID ( ) == positionNotes[ m ].patternID )
-				{
-					pattern.updatePosition ( positionNotes[ m ].position );
-					break;
-				}
+				_panel.add ( _patterns.get ( i ) );
 			}
 		}
+		validatePanel ( );
+		_panel.repaint ( );
 	}
 
 	/**
-	 * Show the MIDI note that is played.
+	 * Update pointer position on all patterns.
+	 * @param pulse Pulse count of the sequencer.
 	 */
-	public void updatePatternSequence ( PatternSequenceNote note )
+	public void updatePatternPositions ( long pulse )
 	{
 		int n = _patterns.size ( );
 		while ( --n > -1 )
 		{
-			Pattern pattern = _patterns.get ( n );
-			if ( pattern.getID ( ) == note.patternID )
+			_patterns.get ( n ).updatePosition ( pulse );
+		}
+	}
+
+	/**
+	 * Collect the MIDI note that is played. Called for each note the sequencer
+	 * published since the previous frame, the notes are shown once per
+	 * pattern after they're all collected. Notes of patterns out of view
+	 * don't start an animation, as it would never be painted.
+	 */
+	public void noteEventHandler ( UUID patternID, int midiStatus, int stepIndex )
+	{
+		Pattern pattern = _patternsByID.get ( patternID );
+		if ( pattern != null && ( midiStatus != ShortMessage.NOTE_ON || _viewRect.intersects ( pattern.getX ( ), pattern.getY ( ), Pattern.PANEL_SIZE, Pattern.PANEL_SIZE ) ) )
+		{
+			if ( pattern.updateSequence ( midiStatus, stepIndex ) )
 			{
-				pattern.updateSequence ( note );
+				_playedPatterns.add ( pattern );
 			}
 		}
 	}
 
+	/**
+	 * Pointers move while the sequencer plays, so keep drawing frames.
+	 */
 	public void updatePlayback ( EPGEnums.Playback playback )
 	{
-		if ( playback == EPGEnums.Playback.STOP )
-		{
-			// updateTempo ( 0 );
-		}
+		_isPlaying = playback == EPGEnums.Playback.START;
+		_clock.setContinuous ( _isPlaying || _isExternalClock );
+	}
+
+	/**
+	 * MIDI clock in can start the sequencer at any time, so keep drawing
+	 * frames while it's the clock source.
+	 */
+	public void updateClockSource ( ClockSourceType clockSourceType )
+	{
+		_isExternalClock = clockSourceType == ClockSourceType.MIDI_CLOCK_IN;
+		_clock.setContinuous ( _isPlaying || _isExternalClock );
 	}
 
 	public Point getMouseClickPosition ( )
@@ -205,16 +273,58 @@ public class PatternCanvas implements MouseListener, MouseMotionListener, Action
 	}
 
 	/**
-	 * Called by _timer to update all patterns.
+	 * Called by _clock to update the patterns in view. The listener first
+	 * sets the pattern positions for this frame. Only the parts of patterns
+	 * that changed since they were last painted are repainted, and then
+	 * another frame is requested to see that they were. Pattern components
+	 * are repainted each on their own, so the repaint manager doesn't merge
+	 * the areas of far apart patterns into one large area.
 	 */
 	public void actionPerformed ( ActionEvent event )
 	{
-		int n = _patterns.size ( );
+		_viewRect = _viewport.getViewRect ( );
+
+		dispatchViewEvent ( ViewEvent.REDRAW );
+
+		/** Show the notes collected while the ring was drained, once per pattern. */
+		int numPlayed = _playedPatterns.size ( );
+		for ( int i = 0; i < numPlayed; i++ )
+		{
+			Pattern pattern = _playedPatterns.get ( i );
+			pattern.showPlayedNotes ( _clock.getTime ( ) );
+			_clock.animate ( pattern );
+		}
+		_playedPatterns.clear ( );
+
+		_grid.getPatterns ( _viewRect, _visiblePatterns );
+		int n = _visiblePatterns.size ( );
 		while ( --n > -1 )
 		{
-			_patterns.get ( n ).updateDraw ( );
-			_panel.repaint ( _patterns.get ( n ).getBounds ( ) );
+			Pattern pattern = _visiblePatterns.get ( n );
+			if ( pattern.updateDraw ( _viewRect ) )
+			{
+				_clock.requestFrame ( );
+				pattern.getRepaintBounds ( _repaintBounds );
+				if ( _isSingleSurface )
+				{
+					_repaintBounds.translate ( pattern.getX ( ), pattern.getY ( ) );
+					_surface.repaint ( _repaintBounds );
+				}
+				else
+				{
+					pattern.repaint ( _repaintBounds );
+				}
+			}
 		}
+		_visiblePatterns.clear ( );
+	}
+
+	/**
+	 * The view scrolled, update the pointers of patterns that came into view.
+	 */
+	public void stateChanged ( ChangeEvent event )
+	{
+		_clock.requestFrame ( );
 	}
 
 	public void mouseReleased ( MouseEvent event )
@@ -242,23 +352,12 @@ public class PatternCanvas implements MouseListener, MouseMotionListener, Action
 	public void mousePressed ( MouseEvent event )
 	{
 		/** Check if a pattern is clicked. */
-		_patternUnderMouse = null;
-		int n = _patterns.size ( );
-		while ( --n > -1 )
+		_patternUnderMouse = _grid.getPatternAt ( event.getX ( ), event.getY ( ), CENTER_HIT_RADIUS );
+		if ( _patternUnderMouse != null )
 		{
-			Pattern pattern = _patterns.get ( n );
-			int w = event.getX ( ) - pattern.getX ( ) - Pattern.PANEL_SIZE / 2;
-			int h = event.getY ( ) - pattern.getY ( ) - Pattern.PANEL_SIZE / 2;
-			double distance = Math.sqrt ( w * w + h * h );
-
-			if ( distance < 20 )
-			{
-				_dragOffset.x = w;
-				_dragOffset.y = h;
-				_patternUnderMouse = pattern;
-				dispatchViewEvent ( ViewEvent.PATTERN_CENTER_PRESS );
-				break;
-			}
+			_dragOffset.x = event.getX ( ) - _patternUnderMouse.getX ( ) - Pattern.PANEL_SIZE / 2;
+			_dragOffset.y = event.getY ( ) - _patternUnderMouse.getY ( ) - Pattern.PANEL_SIZE / 2;
+			dispatchViewEvent ( ViewEvent.PATTERN_CENTER_PRESS );
 		}
 
 		/** Mouse press on background, not on any pattern center. */
@@ -283,7 +382,7 @@ public class PatternCanvas implements MouseListener, MouseMotionListener, Action
 	{
 		if ( _patternUnderMouse != null )
 		{
-			_patternUnderMouse.setLocation ( ( event.getX ( ) - Pattern.PANEL_SIZE / 2 ) - _dragOffset.x, ( event.getY ( ) - Pattern.PANEL_SIZE / 2 ) - _dragOffset.y );
+			setPatternLocation ( _patternUnderMouse, ( event.getX ( ) - Pattern.PANEL_SIZE / 2 ) - _dragOffset.x, ( event.getY ( ) - Pattern.PANEL_SIZE / 2 ) - _dragOffset.y );
 		}
 		else
 		{
@@ -309,17 +408,58 @@ public class PatternCanvas implements MouseListener, MouseMotionListener, Action
 		}
 	}
 
+	/**
+	 * Move a pattern and keep it in the right grid cell. A component moves
+	 * itself on screen, on the surface both the old and new area are repainted.
+	 */
+	private void setPatternLocation ( Pattern pattern, int x, int y )
+	{
+		if ( pattern.getX ( ) == x && pattern.getY ( ) == y )
+		{
+			return;
+		}
+
+		if ( _isSingleSurface )
+		{
+			repaintPattern ( pattern );
+		}
+		pattern.setLocation ( x, y );
+		_grid.update ( pattern );
+		if ( _isSingleSurface )
+		{
+			repaintPattern ( pattern );
+		}
+	}
+
+	/**
+	 * Repaint the area of a pattern on the surface. Pattern components
+	 * repaint themselves.
+	 */
+	private void repaintPattern ( Pattern pattern )
+	{
+		if ( _isSingleSurface )
+		{
+			_surface.repaint ( pattern.getX ( ), pattern.getY ( ), Pattern.PANEL_SIZE, Pattern.PANEL_SIZE );
+		}
+		else
+		{
+			_panel.repaint ( pattern.getX ( ), pattern.getY ( ), Pattern.PANEL_SIZE, Pattern.PANEL_SIZE );
+		}
+	}
+
+	/**
+	 * Size the panel to hold all patterns. The grid knows the extent of the
+	 * patterns, so this doesn't look at each pattern.
+	 */
 	private void validatePanel ( )
 	{
 		Dimension actualSize = new Dimension ( 100, 100 );
-		int n = _patterns.size ( );
-		while ( --n > -1 )
+		_grid.getExtent ( actualSize );
+		_surface.setSize ( actualSize );
+		if ( !actualSize.equals ( _panel.getPreferredSize ( ) ) )
 		{
-			Pattern pattern = _patterns.get ( n );
-			actualSize.width = Math.max ( actualSize.width, pattern.getX ( ) + pattern.getWidth ( ) );
-			actualSize.height = Math.max ( actualSize.height, pattern.getY ( ) + pattern.getHeight ( ) );
+			_panel.setPreferredSize ( actualSize );
+			_panel.revalidate ( );
 		}
-		_panel.setPreferredSize ( actualSize );
-		_panel.revalidate ( );
 	}
 }
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.view.components;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/**
+ * Uniform grid over the canvas to find patterns by location, so hit testing
+ * and culling only look at the patterns near a point or an area.
+ * 
+ * A pattern is kept in the cell that holds its center. The cells are as large
+ * as a pattern, so a pattern that overlaps an area has its center in one of
+ * the cells that overlap the area grown by half a pattern on each side.
+ * 
+ * The grid is kept up to date one pattern at a time. It also counts the
+ * patterns at each x and y, so the size of the canvas is known without
+ * looking at every pattern.
+ */
+public class PatternGrid
+{
+	private static final int CELL_SIZE = Pattern.PANEL_SIZE;
+	private static final int HALF_SIZE = Pattern.PANEL_SIZE / 2;
+	private HashMap < Long, ArrayList < Pattern > > _cells = new HashMap < Long, ArrayList < Pattern > > ( );
+	/** Location of each pattern when it was added to the grid. */
+	private HashMap < Pattern, Point > _locations = new HashMap < Pattern, Point > ( );
+	private TreeMap < Integer, Integer > _xCounts = new TreeMap < Integer, Integer > ( );
+	private TreeMap < Integer, Integer > _yCounts = new TreeMap < Integer, Integer > ( );
+
+	public void add ( Pattern pattern )
+	{
+		Point location = pattern.getLocation ( );
+		Long key = getKey ( location.x, location.y );
+		ArrayList < Pattern > cell = _cells.get ( key );
+		if ( cell == null )
+		{
+			cell = new ArrayList < Pattern > ( );
+			_cells.put ( key, cell );
+		}
+		cell.add ( pattern );
+		_locations.put ( pattern, location );
+		count ( _xCounts, location.x, 1 );
+		count ( _yCounts, location.y, 1 );
+	}
+
+	public void remove ( Pattern pattern )
+	{
+		Point location = _locations.remove ( pattern );
+		if ( location != null )
+		{
+			Long key = getKey ( location.x, location.y );
+			ArrayList < Pattern > cell = _cells.get ( key );
+			cell.remove ( pattern );
+			if ( cell.isEmpty ( ) )
+			{
+				_cells.remove ( key );
+			}
+			count ( _xCounts, location.x, -1 );
+			count ( _yCounts, location.y, -1 );
+		}
+	}
+
+	/**
+	 * Move a pattern in the grid to its current location.
+	 */
+	public void update ( Pattern pattern )
+	{
+		Point location = _locations.get ( pattern );
+		if ( location == null || location.x != pattern.getX ( ) || location.y != pattern.getY ( ) )
+		{
+			remove ( pattern );
+			add ( pattern );
+		}
+	}
+
+	public int size ( )
+	{
+		return _locations.size ( );
+	}
+
+	/**
+	 * Size the canvas needs to show all patterns, measured from the origin.
+	 * @param size Dimension to set, at least the size it already has.
+	 */
+	public void getExtent ( Dimension size )
+	{
+		if ( !_xCounts.isEmpty ( ) )
+		{
+			size.width = Math.max ( size.width, _xCounts.lastKey ( ) + Pattern.PANEL_SIZE );
+			size.height = Math.max ( size.height, _yCounts.lastKey ( ) + Pattern.PANEL_SIZE );
+		}
+	}
+
+	/**
+	 * @param radius Maximum distance from the point to a pattern's center.
+	 * @return Pattern with its center nearest to the point, null if no center is within the radius.
+	 */
+	public Pattern getPatternAt ( int x, int y, int radius )
+	{
+		Pattern nearest = null;
+		long nearestDistance = ( long ) radius * radius;
+		int lastCellX = Math.floorDiv ( x + radius, CELL_SIZE );
+		int lastCellY = Math.floorDiv ( y + radius, CELL_SIZE );
+		for ( int cellX = Math.floorDiv ( x - radius, CELL_SIZE ); cellX <= lastCellX; cellX++ )
+		{
+			for ( int cellY = Math.floorDiv ( y - radius, CELL_SIZE ); cellY <= lastCellY; cellY++ )
+			{
+				ArrayList < Pattern > cell = _cells.get ( getCellKey ( cellX, cellY ) );
+				if ( cell == null )
+				{
+					continue;
+				}
+
+				for ( int i = 0; i < cell.size ( ); i++ )
+				{
+					Pattern pattern = cell.get ( i );
+					long w = x - pattern.getX ( ) - HALF_SIZE;
+					long h = y - pattern.getY ( ) - HALF_SIZE;
+					long distance = ( w * w ) + ( h * h );
+					if ( distance < nearestDistance )
+					{
+						nearest = pattern;
+						nearestDistance = distance;
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Collect the patterns that overlap an area.
+	 * @param area Area in canvas coordinates.
+	 * @param patterns List to fill, it is cleared first.
+	 */
+	public void getPatterns ( Rectangle area, ArrayList < Pattern > patterns )
+	{
+		patterns.clear ( );
+		if ( area.isEmpty ( ) )
+		{
+			return;
+		}
+
+		int firstCellX = Math.floorDiv ( area.x - HALF_SIZE, CELL_SIZE );
+		int firstCellY = Math.floorDiv ( area.y - HALF_SIZE, CELL_SIZE );
+		int lastCellX = Math.floorDiv ( area.x + area.width + HALF_SIZE - 1, CELL_SIZE );
+		int lastCellY = Math.floorDiv ( area.y + area.height + HALF_SIZE - 1, CELL_SIZE );
+
+		/** An area with more cells than there are patterns is quicker to check pattern by pattern. */
+		if ( ( long ) ( lastCellX - firstCellX + 1 ) * ( lastCellY - firstCellY + 1 ) > _locations.size ( ) )
+		{
+			for ( Pattern pattern : _locations.keySet ( ) )
+			{
+				addIfOverlapping ( pattern, area, patterns );
+			}
+			return;
+		}
+
+		for ( int cellY = firstCellY; cellY <= lastCellY; cellY++ )
+		{
+			for ( int cellX = firstCellX; cellX <= lastCellX; cellX++ )
+			{
+				ArrayList < Pattern > cell = _cells.get ( getCellKey ( cellX, cellY ) );
+				if ( cell != null )
+				{
+					for ( int i = 0; i < cell.size ( ); i++ )
+					{
+						addIfOverlapping ( cell.get ( i ), area, patterns );
+					}
+				}
+			}
+		}
+	}
+
+	private static void addIfOverlapping ( Pattern pattern, Rectangle area, ArrayList < Pattern > patterns )
+	{
+		int x = pattern.getX ( );
+		int y = pattern.getY ( );
+		if ( x < area.x + area.width && x + Pattern.PANEL_SIZE > area.x && y < area.y + area.height && y + Pattern.PANEL_SIZE > area.y )
+		{
+			patterns.add ( pattern );
+		}
+	}
+
+	/**
+	 * Add to the number of patterns at a coordinate.
+	 */
+	private static void count ( TreeMap < Integer, Integer > counts, int coordinate, int change )
+	{
+		Integer count = counts.get ( coordinate );
+		int newCount = ( count == null ? 0 : count ) + change;
+		if ( newCount > 0 )
+		{
+			counts.put ( coordinate, newCount );
+		}
+		else
+		{
+			counts.remove ( coordinate );
+		}
+	}
+
+	/**
+	 * Key of the cell that holds the center of a pattern at a location.
+	 */
+	private static Long getKey ( int x, int y )
+	{
+		return getCellKey ( Math.floorDiv ( x + HALF_SIZE, CELL_SIZE ), Math.floorDiv ( y + HALF_SIZE, CELL_SIZE ) );
+	}
+
+	private static Long getCellKey ( int cellX, int cellY )
+	{
+		return ( ( long ) cellX << 32 ) | ( cellY & 0xFFFFFFFFl );
+	}
+}
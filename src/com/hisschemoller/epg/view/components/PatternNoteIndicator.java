@@ -6,13 +6,18 @@ import java.awt.RenderingHints;
 import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
 
+/**
+ * Dot in the center of a pattern while a note plays. It grows on note on
+ * and shrinks on note off, a picture each AnimationClock.FRAME_TIME.
+ */
 public class PatternNoteIndicator
 {
-	private static final int TILE_SIZE = 30;
+	protected static final int TILE_SIZE = 30;
 	private static final int CENTER_NOTE_MAXIMUM_RADIUS = 6;
 	private static final int ANIMATION_DURATION = 3;
 	private BufferedImage [ ] _images;
-	private int _count = 0;
+	private long _startTime;
+	private int _frame = 0;
 	private State _state = State.OFF;
 	private int _tileCenter = TILE_SIZE / -2;
 
@@ -45,45 +50,65 @@ public class PatternNoteIndicator
 		}
 	}
 
-	public void start ( )
+	/**
+	 * @param time System.nanoTime() at which the note starts.
+	 */
+	public void start ( long time )
 	{
-		_count = 0;
+		_startTime = time;
+		_frame = 0;
 		_state = State.START;
 	}
 
-	public void end ( )
+	/**
+	 * @param time System.nanoTime() at which the note ends.
+	 */
+	public void end ( long time )
 	{
-		_count = ANIMATION_DURATION - 1;
+		_startTime = time;
+		_frame = ANIMATION_DURATION - 1;
 		_state = State.END;
 	}
 
-	public void paintComponent ( Graphics2D graphics2, Pattern pattern )
+	/**
+	 * Advance the animation to a time.
+	 * @return True while the indicator grows or shrinks.
+	 */
+	public boolean update ( long time )
 	{
-		if ( _state == State.OFF )
-		{
-			return;
-		}
-		else if ( _state == State.START )
+		int frames = ( int ) ( ( time - _startTime ) / AnimationClock.FRAME_TIME );
+		if ( _state == State.START )
 		{
-			graphics2.drawImage ( _images[ _count ], _tileCenter, _tileCenter, pattern );
-			_count++;
-			if ( _count == ANIMATION_DURATION )
+			_frame = Math.min ( frames, ANIMATION_DURATION - 1 );
+			if ( frames >= ANIMATION_DURATION )
 			{
 				_state = State.HOLD;
 			}
 		}
 		else if ( _state == State.END )
 		{
-			graphics2.drawImage ( _images[ _count ], _tileCenter, _tileCenter, pattern );
-			_count--;
-			if ( _count < 0 )
+			_frame = ANIMATION_DURATION - 1 - frames;
+			if ( _frame < 0 )
 			{
 				_state = State.OFF;
 			}
 		}
-		else if ( _state == State.HOLD )
+		return isAnimating ( );
+	}
+
+	/**
+	 * @return True if the indicator grows or shrinks, so it changes with every paint.
+	 */
+	public boolean isAnimating ( )
+	{
+		return _state == State.START || _state == State.END;
+	}
+
+	public void paintComponent ( Graphics2D graphics2, Pattern pattern )
+	{
+		if ( _state != State.OFF )
 		{
-			graphics2.drawImage ( _images[ ANIMATION_DURATION - 1 ], _tileCenter, _tileCenter, pattern );
+			graphics2.drawImage ( _images[ _frame ], _tileCenter, _tileCenter, pattern );
 		}
 	}
 }
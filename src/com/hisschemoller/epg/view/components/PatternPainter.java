@@ -20,24 +20,39 @@
 
 package com.hisschemoller.epg.view.components;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.awt.Shape;
-import java.awt.geom.AffineTransform;
+import java.awt.Transparency;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import javax.sound.midi.ShortMessage;
 
 import com.hisschemoller.epg.model.data.EPGEnums.PatternState;
 
+/**
+ * Draws a pattern in two layers. The static layer, with the steps, polygon,
+ * center, name and flag, is kept in an image that is only drawn again when
+ * one of those changes. The dynamic layer, with the pointer and the note
+ * animations, is drawn over it on every paint. isRepaintNeeded() tells the
+ * canvas if a pattern looks any different than when it was last painted, and
+ * getRepaintBounds() which part of it.
+ * 
+ * The animations are advanced by AnimationClock through updateAnimations(),
+ * painting only draws them as they are.
+ */
 public class PatternPainter
 {
 	private static final Color COLOR_FFFFFF = new Color ( 0xFFFFFF );
@@ -47,6 +62,9 @@ public class PatternPainter
 	private static final Color COLOR_666666 = new Color ( 0x666666 );
 	private static final Color COLOR_333333 = new Color ( 0x333333 );
 	private static final Color COLOR_11000000 = new Color ( 0x11000000, true );
+	private static final BasicStroke STROKE = new BasicStroke ( 2 );
+	/** Pointer movement in pixels at its tip that is worth a repaint. */
+	private static final float MINIMUM_POINTER_MOVEMENT = 0.5f;
 	private static final float CENTER_RADIUS = 20;
 	private static final float ZERO_RADIUS = 2;
 	private static final int STEP_ANIMATION_DURATION = 10;
@@ -60,12 +78,18 @@ public class PatternPainter
 	private Ellipse2D.Float _zero;
 	private Polygon _polygon;
 	private Path2D.Float _pointer;
-	private Shape _pointerRotated;
-	private AffineTransform _affineTransform;
+	private Rectangle2D _pointerBounds;
+	private float _pointerAngle = 0;
+	private float _paintedPointerAngle = Float.NaN;
 	private Pattern _pattern;
 	private Boolean [ ] _selections;
 	private Ellipse2D.Float[] _steps;
 	private ArrayList < AnimatedStep > _animatedSteps = new ArrayList < AnimatedStep > ( );
+	/** Steps played since the last frame. */
+	private BitSet _playedSteps = new BitSet ( );
+	private boolean _isNotePlayed = false;
+	private boolean _isNoteStarted = false;
+	private boolean _isNoteEnded = false;
 	private BufferedImage [ ] _stepAnimation;
 	private PatternNoteIndicator _centerNoteIndicator;
 	private FontMetrics _fontMetrics;
@@ -83,6 +107,15 @@ public class PatternPainter
 	private float _zeroDistance;
 	private boolean _selected = false;
 	private boolean _drawFlag = false;
+	private volatile boolean _isImageChanged = true;
+	/** True once the current static layer has been painted in full. */
+	private boolean _isImageShown = false;
+	/** Area the animations were drawn in since the last complete paint, empty if none. */
+	private Rectangle _paintedAnimationBounds = new Rectangle ( 0, 0, -1, -1 );
+	private Rectangle _clipBounds = new Rectangle ( );
+	private Rectangle _changedBounds = new Rectangle ( );
+	/** Part of the pattern in view, only that part has to be painted. */
+	private Rectangle _visibleBounds = new Rectangle ( 0, 0, Pattern.PANEL_SIZE, Pattern.PANEL_SIZE );
 
 	public PatternPainter ( Pattern pattern )
 	{
@@ -119,46 +152,125 @@ public class PatternPainter
 	public void paintComponent ( Graphics graphics )
 	{
 		Graphics2D graphics2 = ( Graphics2D ) graphics;
+		boolean isComplete;
 
-		/** Draw the BufferedImage. */
+		/** Draw the static layer, first drawing the image again if the pattern changed. */
 		synchronized ( this )
 		{
-			if ( _image != null )
+			/**
+			 * A paint clipped to the area of an overlapping pattern leaves old
+			 * pixels outside the clip, so only a paint that covers everything
+			 * that changed and is in view counts as painted.
+			 */
+			_clipBounds.setBounds ( 0, 0, Pattern.PANEL_SIZE, Pattern.PANEL_SIZE );
+			graphics2.getClipBounds ( _clipBounds );
+			getRepaintBounds ( _changedBounds );
+			intersectBounds ( _changedBounds, _visibleBounds );
+			isComplete = _changedBounds.isEmpty ( ) || _clipBounds.contains ( _changedBounds );
+
+			if ( _isImageChanged )
+			{
+				_isImageChanged = false;
+				_isImageShown = false;
+				drawImage ( graphics2.getDeviceConfiguration ( ) );
+			}
+			graphics2.drawImage ( _image, 0, 0, _pattern );
+
+			if ( isComplete )
 			{
-				graphics2.drawImage ( _image, 0, 0, _pattern );
+				_isImageShown = true;
 			}
 		}
 
 		graphics2.translate ( Pattern.PANEL_SIZE / 2, Pattern.PANEL_SIZE / 2 );
 
+		/** An animation drawn now must be painted again next frame, to advance or to erase it. */
+		if ( isComplete )
+		{
+			_paintedAnimationBounds.setBounds ( 0, 0, -1, -1 );
+		}
+		if ( _centerNoteIndicator.isAnimating ( ) )
+		{
+			addBounds ( _paintedAnimationBounds, PatternNoteIndicator.TILE_SIZE / -2, PatternNoteIndicator.TILE_SIZE / -2, PatternNoteIndicator.TILE_SIZE, PatternNoteIndicator.TILE_SIZE );
+		}
+
 		/** Draw step animations (if any). */
 		int n = _animatedSteps.size ( );
 		while ( --n > -1 )
 		{
 			AnimatedStep step = _animatedSteps.get ( n );
-			graphics2.drawImage ( _stepAnimation[ step.clock ], step.x, step.y, _pattern );
-			if ( ++step.clock >= STEP_ANIMATION_DURATION )
-			{
-				_animatedSteps.remove ( n );
-			}
+			graphics2.drawImage ( _stepAnimation[ step.frame ], step.x, step.y, _pattern );
+			addBounds ( _paintedAnimationBounds, step.x, step.y, STEP_TILE_SIZE, STEP_TILE_SIZE );
 		}
 
 		/** Draw center Note On indicator (if note plays). */
 		_centerNoteIndicator.paintComponent ( graphics2, _pattern );
 
 		graphics2.setRenderingHint ( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
-		graphics2.setStroke ( new BasicStroke ( 2 ) );
+		graphics2.setStroke ( STROKE );
 		graphics2.setColor ( COLOR_333333 );
 
 		/** Draw pointer. */
-		graphics2.draw ( _pointerRotated );
+		graphics2.rotate ( _pointerAngle );
+		graphics2.draw ( _pointer );
+		if ( isComplete )
+		{
+			_paintedPointerAngle = _pointerAngle;
+		}
+	}
+
+	/**
+	 * @return True if the pattern must be painted again: the static layer
+	 * changed, an animation runs or the pointer moved.
+	 */
+	public boolean isRepaintNeeded ( )
+	{
+		return _isImageChanged || !_isImageShown || Float.isNaN ( _paintedPointerAngle ) || isPointerMoved ( ) || _paintedAnimationBounds.width >= 0 || _animatedSteps.size ( ) > 0 || _centerNoteIndicator.isAnimating ( );
+	}
+
+	/**
+	 * Area that changed since the last paint, in pattern coordinates. The
+	 * whole pattern if the static layer changed, otherwise where the pointer
+	 * and animations were and are now.
+	 * @param bounds Rectangle to set.
+	 */
+	public void getRepaintBounds ( Rectangle bounds )
+	{
+		if ( _isImageChanged || !_isImageShown || Float.isNaN ( _paintedPointerAngle ) )
+		{
+			bounds.setBounds ( 0, 0, Pattern.PANEL_SIZE, Pattern.PANEL_SIZE );
+			return;
+		}
+
+		bounds.setBounds ( _paintedAnimationBounds );
+
+		int n = _animatedSteps.size ( );
+		while ( --n > -1 )
+		{
+			AnimatedStep step = _animatedSteps.get ( n );
+			addBounds ( bounds, step.x, step.y, STEP_TILE_SIZE, STEP_TILE_SIZE );
+		}
+
+		if ( _centerNoteIndicator.isAnimating ( ) )
+		{
+			addBounds ( bounds, PatternNoteIndicator.TILE_SIZE / -2, PatternNoteIndicator.TILE_SIZE / -2, PatternNoteIndicator.TILE_SIZE, PatternNoteIndicator.TILE_SIZE );
+		}
+
+		/** Include any movement, even too small to ask for a repaint by itself. */
+		if ( _pointerAngle != _paintedPointerAngle )
+		{
+			addPointerBounds ( bounds, _paintedPointerAngle );
+			addPointerBounds ( bounds, _pointerAngle );
+		}
+
+		bounds.translate ( Pattern.PANEL_SIZE / 2, Pattern.PANEL_SIZE / 2 );
 	}
 
 	/**
 	 * Set the pattern of steps to be drawn.
 	 * @param selections Array of steps where true is a selected step.
 	 */
-	public void setPattern ( Boolean [ ] selections )
+	public synchronized void setPattern ( Boolean [ ] selections )
 	{
 		_numSteps = selections.length;
 		_interval = ( float ) ( Math.PI * 2 ) / _numSteps;
@@ -184,10 +296,10 @@ public class PatternPainter
 			}
 		}
 		
-		drawImage ( );
+		_isImageChanged = true;
 	}
 
-	public void setPatternRotation ( int rotation )
+	public synchronized void setPatternRotation ( int rotation )
 	{
 		_drawFlag = rotation != 0;
 
@@ -197,53 +309,152 @@ public class PatternPainter
 		float locationY = -ZERO_RADIUS + ( float ) ( Math.cos ( position ) * -_zeroDistance );
 		_zero = new Ellipse2D.Float ( locationX, locationY, ZERO_RADIUS * 2, ZERO_RADIUS * 2 );
 
-		drawImage ( );
+		_isImageChanged = true;
+	}
+
+	/**
+	 * Advance the step and note indicator animations to a time. Steps whose
+	 * animation has ended are removed.
+	 * @param time System.nanoTime() of the frame.
+	 * @return True while any animation runs.
+	 */
+	public boolean updateAnimations ( long time )
+	{
+		int n = _animatedSteps.size ( );
+		while ( --n > -1 )
+		{
+			AnimatedStep step = _animatedSteps.get ( n );
+			int frame = ( int ) ( ( time - step.startTime ) / AnimationClock.FRAME_TIME );
+			if ( frame >= STEP_ANIMATION_DURATION )
+			{
+				_animatedSteps.remove ( n );
+			}
+			else
+			{
+				step.frame = frame;
+			}
+		}
+
+		boolean isIndicatorAnimating = _centerNoteIndicator.update ( time );
+		return isIndicatorAnimating || _animatedSteps.size ( ) > 0;
+	}
+
+	/**
+	 * @param x Left of the view, relative to the pattern.
+	 * @param y Top of the view, relative to the pattern.
+	 */
+	public void setVisibleBounds ( int x, int y, int width, int height )
+	{
+		_visibleBounds.setBounds ( x, y, width, height );
 	}
 
+	/**
+	 * @param rotation Pointer angle in radians, applied on the next paint.
+	 */
 	public void setPointerRotation ( float rotation )
 	{
-		_affineTransform = new AffineTransform ( );
-		_affineTransform.rotate ( rotation );
-		_pointerRotated = _affineTransform.createTransformedShape ( _pointer );
+		_pointerAngle = rotation;
 	}
 
 	/**
-	 * Show the MIDI note that is played.
-	 * This is shown by the step dot being animated on note on and off.
+	 * Remember a MIDI note that is played, to be shown on the next frame.
+	 * Notes are collected until then, so a step played several times in one
+	 * frame is animated once.
 	 * @param midiStatus MIDI note on or off.
-	 * @param stepIndex Current step in the pattern sequence. 
+	 * @param stepIndex Current step in the pattern sequence, rotation applied. 
+	 * @return True for the first note since the last frame.
 	 */
-	public void setPlayedNote ( int midiStatus, int stepIndex )
+	public boolean setPlayedNote ( int midiStatus, int stepIndex )
 	{
+		boolean isFirstNote = !_isNotePlayed;
+		_isNotePlayed = true;
+
 		if ( midiStatus == ShortMessage.NOTE_ON )
 		{
-			AnimatedStep step = new AnimatedStep ( );
-			step.x = ( int ) ( _steps[ stepIndex ].x + AnimatedStep.POSITION_OFFSET );
-			step.y = ( int ) ( _steps[ stepIndex ].y + AnimatedStep.POSITION_OFFSET );
-			_animatedSteps.add ( step );
-
-			_centerNoteIndicator.start ( );
+			/** A note played just before the number of steps changed may be out of range. */
+			if ( stepIndex < _steps.length )
+			{
+				_playedSteps.set ( stepIndex );
+			}
+			_isNoteStarted = true;
+			_isNoteEnded = false;
 		}
 		else if ( midiStatus == ShortMessage.NOTE_OFF )
 		{
-			_centerNoteIndicator.end ( );
+			_isNoteEnded = true;
 		}
+
+		return isFirstNote;
 	}
 
-	public void setSelected ( boolean isSelected )
+	/**
+	 * Show the notes played since the last frame.
+	 * This is shown by the step dot being animated on note on and off.
+	 * A step that is still animating starts its animation again.
+	 * @param time System.nanoTime() at which the animations start.
+	 */
+	public void showPlayedNotes ( long time )
 	{
-		_selected = isSelected;
-		drawImage ( );
+		for ( int i = _playedSteps.nextSetBit ( 0 ); i >= 0 && i < _steps.length; i = _playedSteps.nextSetBit ( i + 1 ) )
+		{
+			AnimatedStep step = null;
+			int n = _animatedSteps.size ( );
+			while ( --n > -1 )
+			{
+				if ( _animatedSteps.get ( n ).index == i )
+				{
+					step = _animatedSteps.get ( n );
+					break;
+				}
+			}
+
+			if ( step == null )
+			{
+				step = new AnimatedStep ( );
+				step.index = i;
+				step.x = ( int ) ( _steps[ i ].x + AnimatedStep.POSITION_OFFSET );
+				step.y = ( int ) ( _steps[ i ].y + AnimatedStep.POSITION_OFFSET );
+				_animatedSteps.add ( step );
+			}
+			step.startTime = time;
+			step.frame = 0;
+		}
+
+		if ( _isNoteStarted )
+		{
+			_centerNoteIndicator.start ( time );
+		}
+		if ( _isNoteEnded )
+		{
+			_centerNoteIndicator.end ( time );
+		}
+
+		_playedSteps.clear ( );
+		_isNotePlayed = false;
+		_isNoteStarted = false;
+		_isNoteEnded = false;
 	}
 
-	public void setName ( String name )
+	public synchronized void setSelected ( boolean isSelected )
+	{
+		if ( _selected != isSelected )
+		{
+			_selected = isSelected;
+			_isImageChanged = true;
+		}
+	}
+
+	public synchronized void setName ( String name )
 	{
 		_name = name;
 		_nameX = _fontMetrics.stringWidth ( _name ) / -2f;
-		drawImage ( );
+		_isImageChanged = true;
 	}
 
-	public void updateStartupAnimation ( float position )
+	/**
+	 * Called on the event dispatch thread by AnimationClock, through Pattern.updateAnimations().
+	 */
+	public synchronized void updateStartupAnimation ( float position )
 	{
 		/** _center and _select */
 		_centerRadius = CENTER_RADIUS * ( 0.2f + position * 0.8f );
@@ -284,7 +495,7 @@ public class PatternPainter
 			_zero = ( Ellipse2D.Float ) _center.clone ( );
 		}
 
-		drawImage ( );
+		_isImageChanged = true;
 	}
 
 	/**
@@ -296,66 +507,79 @@ public class PatternPainter
 	 * DEFAULT: Draw if not muted, soloed or untriggered.
 	 * patternState : One of the PatternState enum values.
 	 */
-	public void updatePointer ( PatternState patternState )
+	public synchronized void updatePointer ( PatternState patternState )
 	{
 		_pointerLength = ( patternState == PatternState.MUTE ) ? POINTER_LENGTH_MUTE : _stepCircleRadius - 4;
 
-		_pointer = new Path2D.Float ( );
+		Path2D.Float pointer = new Path2D.Float ( );
 
 		if ( patternState == PatternState.UNTRIGGERED || patternState == PatternState.UNTRIGGERED_SOLO )
 		{
-			_pointer.moveTo ( 0, _centerRadius );
-			_pointer.lineTo ( -4, _centerRadius + 4 );
-			_pointer.lineTo ( 0, _centerRadius + 8 );
-			_pointer.lineTo ( 4, _centerRadius + 4 );
-			_pointer.lineTo ( 0, _centerRadius );
+			pointer.moveTo ( 0, _centerRadius );
+			pointer.lineTo ( -4, _centerRadius + 4 );
+			pointer.lineTo ( 0, _centerRadius + 8 );
+			pointer.lineTo ( 4, _centerRadius + 4 );
+			pointer.lineTo ( 0, _centerRadius );
 
 			if ( patternState == PatternState.UNTRIGGERED_SOLO )
 			{
-				_pointer.lineTo ( 0, _centerRadius + 8 );
+				pointer.lineTo ( 0, _centerRadius + 8 );
 			}
 		}
 		else if ( patternState == PatternState.TRIGGERED || patternState == PatternState.TRIGGERED_SOLO )
 		{
 			float half = _centerRadius + ( ( _pointerLength - _centerRadius ) / 2 );
-			_pointer.moveTo ( 0, _centerRadius );
-			_pointer.lineTo ( -6, half );
-			_pointer.lineTo ( 0, _pointerLength );
-			_pointer.lineTo ( 6, half );
-			_pointer.lineTo ( 0, _centerRadius );
+			pointer.moveTo ( 0, _centerRadius );
+			pointer.lineTo ( -6, half );
+			pointer.lineTo ( 0, _pointerLength );
+			pointer.lineTo ( 6, half );
+			pointer.lineTo ( 0, _centerRadius );
 
 			if ( patternState == PatternState.TRIGGERED_SOLO )
 			{
-				_pointer.lineTo ( 0, _pointerLength );
+				pointer.lineTo ( 0, _pointerLength );
 			}
 		}
 		else
 		{
-			_pointer.moveTo ( -8, _centerRadius - 2 );
-			_pointer.lineTo ( 0, _pointerLength );
-			_pointer.lineTo ( 8, _centerRadius - 2 );
+			pointer.moveTo ( -8, _centerRadius - 2 );
+			pointer.lineTo ( 0, _pointerLength );
+			pointer.lineTo ( 8, _centerRadius - 2 );
 
 			if ( patternState == PatternState.SOLO )
 			{
-				_pointer.moveTo ( 0, _centerRadius + 1 );
-				_pointer.lineTo ( 0, _pointerLength );
+				pointer.moveTo ( 0, _centerRadius + 1 );
+				pointer.lineTo ( 0, _pointerLength );
 			}
 		}
 
-		_affineTransform = new AffineTransform ( );
-		_pointerRotated = _affineTransform.createTransformedShape ( _pointer );
+		_pointer = pointer;
+		_pointerBounds = pointer.getBounds2D ( );
+
+		/** Paint the new shape even if the pointer didn't move. */
+		_paintedPointerAngle = Float.NaN;
 	}
 
-	private void drawImage ( )
+	/**
+	 * Draw the static layer. The image is created once, compatible with the
+	 * screen so it can be drawn fast, and cleared before it's drawn again.
+	 */
+	private void drawImage ( GraphicsConfiguration graphicsConfiguration )
 	{
 		synchronized ( this )
 		{
-			_image = new BufferedImage ( Pattern.PANEL_SIZE, Pattern.PANEL_SIZE, BufferedImage.TYPE_INT_ARGB );
+			if ( _image == null )
+			{
+				_image = graphicsConfiguration != null ? graphicsConfiguration.createCompatibleImage ( Pattern.PANEL_SIZE, Pattern.PANEL_SIZE, Transparency.TRANSLUCENT ) : new BufferedImage ( Pattern.PANEL_SIZE, Pattern.PANEL_SIZE, BufferedImage.TYPE_INT_ARGB );
+			}
 
-			Graphics2D graphics2 = ( Graphics2D ) _image.getGraphics ( );
+			Graphics2D graphics2 = _image.createGraphics ( );
+			graphics2.setComposite ( AlphaComposite.Clear );
+			graphics2.fillRect ( 0, 0, Pattern.PANEL_SIZE, Pattern.PANEL_SIZE );
+			graphics2.setComposite ( AlphaComposite.SrcOver );
 			graphics2.setRenderingHint ( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
 			graphics2.translate ( Pattern.PANEL_SIZE / 2, Pattern.PANEL_SIZE / 2 );
-			graphics2.setStroke ( new BasicStroke ( 2 ) );
+			graphics2.setStroke ( STROKE );
 
 			/** Draw polygon. */
 			if ( _polygon != null )
@@ -414,12 +638,81 @@ public class PatternPainter
 			graphics2.dispose ( );
 		}
 	}
+
+	private boolean isPointerMoved ( )
+	{
+		return Math.abs ( _pointerAngle - _paintedPointerAngle ) * _pointerLength >= MINIMUM_POINTER_MOVEMENT;
+	}
+
+	/**
+	 * Add the area of the pointer at an angle, with a margin for the stroke.
+	 */
+	private void addPointerBounds ( Rectangle bounds, float angle )
+	{
+		float sin = ( float ) Math.sin ( angle );
+		float cos = ( float ) Math.cos ( angle );
+		float minimumX = Float.MAX_VALUE;
+		float minimumY = Float.MAX_VALUE;
+		float maximumX = -Float.MAX_VALUE;
+		float maximumY = -Float.MAX_VALUE;
+		for ( int i = 0; i < 4; i++ )
+		{
+			double x = ( i & 1 ) == 0 ? _pointerBounds.getMinX ( ) : _pointerBounds.getMaxX ( );
+			double y = ( i & 2 ) == 0 ? _pointerBounds.getMinY ( ) : _pointerBounds.getMaxY ( );
+			float rotatedX = ( float ) ( ( x * cos ) - ( y * sin ) );
+			float rotatedY = ( float ) ( ( x * sin ) + ( y * cos ) );
+			minimumX = Math.min ( minimumX, rotatedX );
+			minimumY = Math.min ( minimumY, rotatedY );
+			maximumX = Math.max ( maximumX, rotatedX );
+			maximumY = Math.max ( maximumY, rotatedY );
+		}
+
+		int x = ( int ) Math.floor ( minimumX ) - 2;
+		int y = ( int ) Math.floor ( minimumY ) - 2;
+		addBounds ( bounds, x, y, ( int ) Math.ceil ( maximumX ) + 2 - x, ( int ) Math.ceil ( maximumY ) + 2 - y );
+	}
+
+	/**
+	 * Shrink a rectangle to the part that lies within another, without
+	 * creating one. The result is empty if they don't overlap.
+	 */
+	private static void intersectBounds ( Rectangle bounds, Rectangle area )
+	{
+		int right = Math.min ( bounds.x + bounds.width, area.x + area.width );
+		int bottom = Math.min ( bounds.y + bounds.height, area.y + area.height );
+		bounds.x = Math.max ( bounds.x, area.x );
+		bounds.y = Math.max ( bounds.y, area.y );
+		bounds.width = right - bounds.x;
+		bounds.height = bottom - bounds.y;
+	}
+
+	/**
+	 * Grow a rectangle to include another, without creating one. A
+	 * rectangle with a negative width is empty.
+	 */
+	private static void addBounds ( Rectangle bounds, int x, int y, int width, int height )
+	{
+		if ( bounds.width < 0 )
+		{
+			bounds.setBounds ( x, y, width, height );
+			return;
+		}
+
+		int right = Math.max ( bounds.x + bounds.width, x + width );
+		int bottom = Math.max ( bounds.y + bounds.height, y + height );
+		bounds.x = Math.min ( bounds.x, x );
+		bounds.y = Math.min ( bounds.y, y );
+		bounds.width = right - bounds.x;
+		bounds.height = bottom - bounds.y;
+	}
 }
 
 final class AnimatedStep
 {
 	public static final float POSITION_OFFSET = PatternPainter.MAXIMUM_STEP_RADIUS - ( PatternPainter.STEP_TILE_SIZE / 2 );
+	public int index;
 	public int x;
 	public int y;
-	public int clock = 0;
+	public long startTime;
+	public int frame = 0;
 }
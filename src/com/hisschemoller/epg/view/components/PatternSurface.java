@@ -0,0 +1,67 @@
+/**
+ * Copyright 2011 Wouter Hisschemoller
+ * 
+ * This file is part of Euclidean Pattern Generator.
+ * 
+ * Euclidean Pattern Generator is free software: you can redistribute 
+ * it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Euclidean Pattern Generator is distributed in the hope that 
+ * it will be useful, but WITHOUT ANY WARRANTY; without even the 
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Euclidean Pattern Generator.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hisschemoller.epg.view.components;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+
+import javax.swing.JComponent;
+
+/**
+ * Draws all patterns of the canvas on one surface in a single paint, instead
+ * of each pattern being a component of its own. Only the patterns that
+ * overlap the area being painted are drawn, and the repaint manager keeps that
+ * area within the visible part of the canvas.
+ * 
+ * The surface has no mouse listeners, so mouse events go to the canvas panel
+ * behind it.
+ */
+public class PatternSurface extends JComponent
+{
+	public static final long serialVersionUID = -1L;
+	private PatternGrid _grid;
+	private ArrayList < Pattern > _paintedPatterns = new ArrayList < Pattern > ( );
+	private Rectangle _clipBounds = new Rectangle ( );
+
+	public PatternSurface ( PatternGrid grid )
+	{
+		_grid = grid;
+		setOpaque ( false );
+	}
+
+	@Override protected void paintComponent ( Graphics graphics )
+	{
+		_clipBounds.setBounds ( 0, 0, getWidth ( ), getHeight ( ) );
+		graphics.getClipBounds ( _clipBounds );
+		_grid.getPatterns ( _clipBounds, _paintedPatterns );
+
+		for ( int i = 0; i < _paintedPatterns.size ( ); i++ )
+		{
+			Pattern pattern = _paintedPatterns.get ( i );
+			Graphics patternGraphics = graphics.create ( pattern.getX ( ), pattern.getY ( ), Pattern.PANEL_SIZE, Pattern.PANEL_SIZE );
+			pattern.paintComponent ( patternGraphics );
+			patternGraphics.dispose ( );
+		}
+
+		_paintedPatterns.clear ( );
+	}
+}
@@ -49,7 +49,9 @@ public class Preferences implements ActionListener
 	private JCheckBox _midiInTriggerByNoteCheckBox;
 	private JCheckBox _displayMidiNoteNamesCheckBox;
 	private JCheckBox _reloadLastProjectCheckBox;
+	private JCheckBox _singleSurfaceCanvasCheckBox;
 	private JTextField _oscOutTextField;
+	private JTextField _oscRoutesTextField;
 	private JCheckBox _oscOutCheckBox;
 	private Vector < IViewEventListener > _viewEventListeners = new Vector < IViewEventListener > ( );
 
@@ -91,12 +93,18 @@ public class Preferences implements ActionListener
 
 		_oscOutTextField = ( JTextField ) swingEngine.find ( "OSC_OUT_TEXTFIELD" );
 		_oscOutTextField.addActionListener ( this );
+
+		_oscRoutesTextField = ( JTextField ) swingEngine.find ( "OSC_ROUTES_TEXTFIELD" );
+		_oscRoutesTextField.addActionListener ( this );
 		
 		_displayMidiNoteNamesCheckBox = ( JCheckBox ) swingEngine.find ( "MIDI_NOTE_NAMES_CHECKBOX" );
 		_displayMidiNoteNamesCheckBox.addActionListener ( this );
 		
 		_reloadLastProjectCheckBox = ( JCheckBox ) swingEngine.find ( "RELOAD_LAST_PROJECT_CHECKBOX" );
 		_reloadLastProjectCheckBox.addActionListener ( this );
+		
+		_singleSurfaceCanvasCheckBox = ( JCheckBox ) swingEngine.find ( "SINGLE_SURFACE_CANVAS_CHECKBOX" );
+		_singleSurfaceCanvasCheckBox.addActionListener ( this );
 	}
 
 	/**
@@ -185,6 +193,11 @@ public class Preferences implements ActionListener
 		_reloadLastProjectCheckBox.setSelected ( isSelected );
 	}
 
+	public void setSingleSurfaceCanvasSelected ( boolean isSelected )
+	{
+		_singleSurfaceCanvasCheckBox.setSelected ( isSelected );
+	}
+
 	public void updateMidiOutEnabled ( boolean isEnabled )
 	{
 		_midiOutCheckBox.setSelected ( isEnabled );
@@ -195,6 +208,7 @@ public class Preferences implements ActionListener
 	{
 		_oscOutCheckBox.setSelected ( isEnabled );
 		_oscOutTextField.setEnabled ( isEnabled );
+		_oscRoutesTextField.setEnabled ( isEnabled );
 	}
 
 	public void updateOscOutPort ( int port )
@@ -202,6 +216,16 @@ public class Preferences implements ActionListener
 		_oscOutTextField.setText ( String.valueOf ( port ) );
 	}
 
+	public void updateOscRoutes ( String routes )
+	{
+		_oscRoutesTextField.setText ( routes );
+	}
+
+	public String getOscRoutes ( )
+	{
+		return _oscRoutesTextField.getText ( ).trim ( );
+	}
+
 	public MidiDevice.Info getMidiInSelectedItem ( )
 	{
 		return ( MidiDevice.Info ) _midiInComboBox.getSelectedItem ( );
@@ -246,6 +270,10 @@ public class Preferences implements ActionListener
 		{
 			dispatchViewEvent ( _oscOutTextField, ViewEvent.OSC_OUT_PORT_CHANGE );
 		}
+		else if ( event.getSource ( ) == _oscRoutesTextField )
+		{
+			dispatchViewEvent ( _oscRoutesTextField, ViewEvent.OSC_OUT_ROUTES_CHANGE );
+		}
 		else if ( event.getSource ( ) == _displayMidiNoteNamesCheckBox )
 		{
 			dispatchViewEvent ( _displayMidiNoteNamesCheckBox, ViewEvent.USE_MIDI_NOTE_NAMES_SELECT );
@@ -254,6 +282,10 @@ public class Preferences implements ActionListener
 		{
 			dispatchViewEvent ( _reloadLastProjectCheckBox, ViewEvent.RELOAD_PROJECT_CHECKBOX_SELECT );
 		}
+		else if ( event.getSource ( ) == _singleSurfaceCanvasCheckBox )
+		{
+			dispatchViewEvent ( _singleSurfaceCanvasCheckBox, ViewEvent.SINGLE_SURFACE_CANVAS_SELECT );
+		}
 	}
 
 	public synchronized void addViewEventListener ( IViewEventListener listener )
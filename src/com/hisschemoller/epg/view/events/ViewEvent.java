@@ -34,6 +34,7 @@ public class ViewEvent extends AWTEvent
 	public static final int PANEL_CLICK = 20;
 	public static final int PATTERN_LOCATION_CHANGE = 21;
 	public static final int PATTERN_CENTER_PRESS = 22;
+	public static final int REDRAW = 23;
 
 	/** Settings */
 	public static final int OSC_OUT_ADDRESS_CHANGE = 30;
@@ -58,6 +59,8 @@ public class ViewEvent extends AWTEvent
 	public static final int OSC_OUT_PORT_CHANGE = 48;
 	public static final int USE_MIDI_NOTE_NAMES_SELECT = 49;
 	public static final int RELOAD_PROJECT_CHECKBOX_SELECT = 50;
+	public static final int SINGLE_SURFACE_CANVAS_SELECT = 51;
+	public static final int OSC_OUT_ROUTES_CHANGE = 52;
 
 	private static final long serialVersionUID = 3091188804101099429L;
 